@@ -0,0 +1,241 @@
+package benchmark;
+
+import simulator.Statistic;
+
+/**
+ * Minimal benchmark harness. Each benchmark runs some warmup iterations, to let the JIT compile the measured code,
+ * and then the measurement iterations, each iteration runs the operation in calibrated batches for a fixed time and
+ * produces one ns/op sample. The results of the operations are consumed to avoid dead code elimination.
+ * <p>
+ * JMH is not used because the project has no build tool, it is compiled with plain javac and has no dependencies,
+ * and JMH needs its annotation processor and generated benchmark classes. The harness covers the JMH concerns that
+ * matter for these benchmarks:
+ * <ul>
+ * <li>Warmup: the batch size is calibrated and the warmup iterations run the same code of the measured iterations
+ * before any sample is taken, so the samples are of JIT compiled code.</li>
+ * <li>Timer overhead: the clock is read only between batches of at least {@link #MIN_BATCH_NANOS}.</li>
+ * <li>Dead code elimination: each {@link Operation} returns a value that depends on all its results, and the values
+ * are accumulated in a volatile field that the JIT can not remove, like the JMH Blackhole.</li>
+ * </ul>
+ * The benchmarks are not forked, they share one JVM and its profile, so a benchmark can be affected by the ones that
+ * ran before it, only results measured by the same command should be compared.
+ * <p>
+ * Common arguments:
+ * <pre>
+ * -warmup N      warmup iterations (default 5)
+ * -iterations N  measurement iterations (default 10)
+ * -time MS       time of each iteration in milliseconds (default 500)
+ * </pre>
+ *
+ * @author Pedro Henrique
+ */
+public class Benchmark {
+
+    /**
+     * The min duration of an operation batch, the clock is read only between batches.
+     */
+    private static final long MIN_BATCH_NANOS = 10_000;
+
+    /**
+     * The confidence level of the reported error.
+     */
+    private static final double CONFIDENCE = 0.999;
+
+    /**
+     * Consumes the operation results.
+     */
+    private static volatile long sink;
+
+    /**
+     * A benchmarked operation.
+     */
+    public interface Operation {
+
+        /**
+         * Runs the operation the received number of times.
+         *
+         * @param operations the number of operations
+         * @return any value that depends on the operation results
+         */
+        long run(int operations);
+    }
+
+    /**
+     * The number of warmup iterations.
+     */
+    public int warmupIterations = 5;
+
+    /**
+     * The number of measurement iterations.
+     */
+    public int measurementIterations = 10;
+
+    /**
+     * The duration of each iteration in milliseconds.
+     */
+    public long iterationTime = 500;
+
+    /**
+     * Parses a common argument.
+     *
+     * @param args the arguments
+     * @param i    the argument index
+     * @return true if the argument is a common argument, its value is at index i + 1
+     * @throws IllegalArgumentException if the argument value is invalid
+     */
+    public boolean parseOption(String[] args, int i) {
+        switch (args[i]) {
+            case "-warmup":
+                warmupIterations = parseInt(args, i, 0);
+                return true;
+            case "-iterations":
+                measurementIterations = parseInt(args, i, 1);
+                return true;
+            case "-time":
+                iterationTime = parseInt(args, i, 1);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Measures the operation and prints the result.
+     *
+     * @param name      the benchmark name
+     * @param parameter the benchmark parameter
+     * @param operation the operation
+     * @return the statistic of the ns/op samples
+     */
+    public Statistic run(String name, String parameter, Operation operation) {
+        return run(name, parameter, 1, operation);
+    }
+
+    /**
+     * Measures the operation and prints the result, each operation call executes many measured operations (the
+     * result is the time per measured operation).
+     *
+     * @param name              the benchmark name
+     * @param parameter         the benchmark parameter
+     * @param operationsPerCall the number of measured operations executed by each operation
+     * @param operation         the operation
+     * @return the statistic of the ns/op samples
+     */
+    public Statistic run(String name, String parameter, int operationsPerCall, Operation operation) {
+        int batch = calibrate(operation);
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(operation, batch);
+        }
+        Statistic statistic = new Statistic();
+        for (int i = 0; i < measurementIterations; i++) {
+            statistic.add(iteration(operation, batch) / operationsPerCall);
+        }
+        double error = measurementIterations > 1 ? statistic.confidenceHalfWidth(CONFIDENCE) : Double.NaN;
+        System.out.printf("%-36s %-12s %4d %14.1f +- %10.1f ns/op%n", name, parameter, measurementIterations, statistic.mean(), error);
+        return statistic;
+    }
+
+    /**
+     * Consumes a result of operations measured outside the harness, to avoid dead code elimination.
+     *
+     * @param result the result
+     */
+    public static void consume(long result) {
+        sink += result;
+    }
+
+    /**
+     * Prints the results header.
+     */
+    public static void printHeader() {
+        System.out.printf("%-36s %-12s %4s %14s   %10s%n", "Benchmark", "Param", "Cnt", "Score", "Error");
+    }
+
+    /**
+     * Finds the number of operations of a batch that takes at least {@link #MIN_BATCH_NANOS}.
+     *
+     * @param operation the operation
+     * @return the batch size
+     */
+    private static int calibrate(Operation operation) {
+        int batch = 1;
+        while (batch < 1 << 30) {
+            long start = System.nanoTime();
+            sink += operation.run(batch);
+            if (System.nanoTime() - start >= MIN_BATCH_NANOS) {
+                break;
+            }
+            batch <<= 1;
+        }
+        return batch;
+    }
+
+    /**
+     * Runs one iteration.
+     *
+     * @param operation the operation
+     * @param batch     the batch size
+     * @return the time per operation in nanoseconds
+     */
+    private double iteration(Operation operation, int batch) {
+        long duration = iterationTime * 1_000_000;
+        long operations = 0;
+        long result = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            result += operation.run(batch);
+            operations += batch;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < duration);
+        sink += result;
+        return (double) elapsed / operations;
+    }
+
+    /**
+     * Parses a comma separated list of integers.
+     *
+     * @param value the list
+     * @return the integers
+     * @throws IllegalArgumentException if some value is not a non negative integer
+     */
+    public static int[] parseInts(String value) {
+        String[] parts = value.split(",");
+        int[] ints = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            try {
+                ints[i] = Integer.parseInt(parts[i].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid integer: " + parts[i], e);
+            }
+            if (ints[i] < 0) {
+                throw new IllegalArgumentException("Invalid integer: " + parts[i]);
+            }
+        }
+        return ints;
+    }
+
+    /**
+     * Parses the integer value of an argument.
+     *
+     * @param args the arguments
+     * @param i    the argument index
+     * @param min  the min value
+     * @return the value
+     * @throws IllegalArgumentException if there is no value or it is invalid
+     */
+    private static int parseInt(String[] args, int i, int min) {
+        if (i + 1 >= args.length) {
+            throw new IllegalArgumentException("Missing value of " + args[i]);
+        }
+        try {
+            int value = Integer.parseInt(args[i + 1]);
+            if (value >= min) {
+                return value;
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of " + args[i] + ": " + args[i + 1], e);
+        }
+        throw new IllegalArgumentException("Invalid value of " + args[i] + ": " + args[i + 1]);
+    }
+}
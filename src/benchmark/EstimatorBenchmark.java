@@ -0,0 +1,292 @@
+package benchmark;
+
+import estimator.Estimator;
+import simulator.RandomStream;
+import simulator.SimulationResult;
+import simulator.Simulator;
+import sweep.SweepSpec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Benchmarks the {@link Estimator#nextFrameSize(int, int, int)} of the estimators. The inputs are realistic, they are
+ * the (idle, success, collision) triples received by the same estimator in simulations with the benchmark tag count,
+ * each operation is one call and the calls cycle over all recorded triples. The estimator receives a new simulation
+ * ({@link Estimator#setSimulationResult(SimulationResult)}) at the first triple of each recorded simulation, so the
+ * estimators that keep state between frames do not carry it from one simulation to the next. The simple estimators
+ * are measured with {@link Estimator#nextFrameSizes(int, int[], int[], int[], int[], SimulationResult[])} too, the
+ * recorded simulations are replayed in lockstep like in {@link simulator.LockstepSimulator}, each batch has the next
+ * triple of each simulation still running, the result is the time per triple.
+ * <p>
+ * Arguments (and the {@link Benchmark} common arguments):
+ * <pre>
+ * -e, -estimator NAME[:PARAM...]  estimator to benchmark, can be repeated (default LowerBound, Schoute, EomLee, Chen,
+ *                                 Vahedi and QAlgorithm)
+ * -tags N[,N...]                  tag counts of the recorded simulations (default 100,500)
+ * -runs N                         recorded simulations per tag count (default 16)
+ * </pre>
+ *
+ * @author Pedro Henrique
+ */
+public class EstimatorBenchmark {
+
+    /**
+     * Prevents instantiation.
+     */
+    private EstimatorBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        Benchmark benchmark = new Benchmark();
+        List<Estimator> estimators = new ArrayList<>();
+        int[] tagCounts = {100, 500};
+        int runs = 16;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (benchmark.parseOption(args, i)) {
+                    i++;
+                    continue;
+                }
+                switch (args[i]) {
+                    case "-e":
+                    case "-estimator":
+                        estimators.add(SweepSpec.parseEstimator(SimulatorBenchmark.value(args, ++i)));
+                        break;
+                    case "-tags":
+                        tagCounts = Benchmark.parseInts(SimulatorBenchmark.value(args, ++i));
+                        break;
+                    case "-runs":
+                        runs = Math.max(1, Benchmark.parseInts(SimulatorBenchmark.value(args, ++i))[0]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: EstimatorBenchmark [-e NAME[:PARAM...]] [-e ...] [-tags N[,N...]] [-runs N] [-warmup N] [-iterations N] [-time MS]");
+            System.exit(1);
+            return;
+        }
+        if (estimators.isEmpty()) {
+            for (String name : new String[]{"LowerBound", "Schoute", "EomLee", "Chen", "Vahedi", "QAlgorithm"}) {
+                estimators.add(SweepSpec.parseEstimator(name));
+            }
+        }
+
+        Benchmark.printHeader();
+        for (Estimator estimator : estimators) {
+            for (int tagCount : tagCounts) {
+                String name = "nextFrameSize " + estimator.getName();
+                FrameRecorder frames;
+                try {
+                    frames = FrameRecorder.record(estimator, tagCount, runs);
+                } catch (RuntimeException e) {
+                    System.out.printf("%-36s %-12s skipped, the simulation failed: %s%n", name, "tags=" + tagCount, e);
+                    continue;
+                }
+                Estimator measured = estimator.copy();
+                SimulationResult simulationResult = new SimulationResult();
+                int[] next = {0};
+                benchmark.run(name, "tags=" + tagCount, operations -> {
+                    long sizes = 0;
+                    int frame = next[0];
+                    for (int i = 0; i < operations; i++) {
+                        if (frames.firstFrame[frame]) {
+                            measured.setSimulationResult(simulationResult);
+                        }
+                        sizes += measured.nextFrameSize(frames.idle[frame], frames.success[frame], frames.collision[frame]);
+                        if (++frame == frames.count) {
+                            frame = 0;
+                        }
+                    }
+                    next[0] = frame;
+                    return sizes;
+                });
+
+                if (estimator.getType() == Estimator.Type.SIMPLE_DFSA) {
+                    benchmark.run("nextFrameSizes " + estimator.getName(), "tags=" + tagCount, frames.count, batch(estimator.copy(), frames));
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates the batch operation, each operation replays all recorded simulations in lockstep, a batch call for each
+     * step. The finished simulations leave the batches and the others keep their order, as the
+     * {@link Estimator#nextFrameSizes(int, int[], int[], int[], int[], SimulationResult[])} contract requires. The
+     * simulation results alternate between two sets in consecutive operations, so each operation replays new
+     * simulations for the estimators that keep state per simulation result.
+     *
+     * @param estimator the estimator
+     * @param frames    the recorded frames
+     * @return the operation
+     */
+    private static Benchmark.Operation batch(Estimator estimator, FrameRecorder frames) {
+
+        // The first frame and the number of frames of each simulation
+        int[] starts = new int[frames.count];
+        int simulations = 0;
+        for (int frame = 0; frame < frames.count; frame++) {
+            if (frames.firstFrame[frame]) {
+                starts[simulations++] = frame;
+            }
+        }
+        int[] lengths = new int[simulations];
+        int steps = 0;
+        for (int r = 0; r < simulations; r++) {
+            lengths[r] = (r + 1 < simulations ? starts[r + 1] : frames.count) - starts[r];
+            steps = Math.max(steps, lengths[r]);
+        }
+
+        // The triples and the simulation results of each step
+        SimulationResult[][] sets = new SimulationResult[2][simulations];
+        for (SimulationResult[] set : sets) {
+            Arrays.setAll(set, r -> new SimulationResult());
+        }
+        int[][] idle = new int[steps][], success = new int[steps][], collision = new int[steps][];
+        SimulationResult[][][] simulationResults = new SimulationResult[2][steps][];
+        for (int step = 0; step < steps; step++) {
+            int size = 0;
+            for (int r = 0; r < simulations; r++) {
+                size += lengths[r] > step ? 1 : 0;
+            }
+            idle[step] = new int[size];
+            success[step] = new int[size];
+            collision[step] = new int[size];
+            simulationResults[0][step] = new SimulationResult[size];
+            simulationResults[1][step] = new SimulationResult[size];
+            for (int r = 0, k = 0; r < simulations; r++) {
+                if (lengths[r] > step) {
+                    idle[step][k] = frames.idle[starts[r] + step];
+                    success[step][k] = frames.success[starts[r] + step];
+                    collision[step][k] = frames.collision[starts[r] + step];
+                    simulationResults[0][step][k] = sets[0][r];
+                    simulationResults[1][step][k] = sets[1][r];
+                    k++;
+                }
+            }
+        }
+        int[] nextFrameSizes = new int[simulations];
+        int[] next = {0};
+        return operations -> {
+            long sizes = 0;
+            for (int i = 0; i < operations; i++) {
+                SimulationResult[][] results = simulationResults[next[0]];
+                for (int step = 0; step < idle.length; step++) {
+                    estimator.nextFrameSizes(idle[step].length, idle[step], success[step], collision[step], nextFrameSizes, results[step]);
+                    sizes += nextFrameSizes[0];
+                }
+                next[0] ^= 1;
+            }
+            return sizes;
+        };
+    }
+
+    /**
+     * Estimator decorator that records the received frames.
+     */
+    private static class FrameRecorder implements Estimator {
+
+        /**
+         * The recorded estimator, a new copy is used in each simulation.
+         */
+        private Estimator estimator;
+
+        /**
+         * The recorded frames, only the first count are valid.
+         */
+        private int[] idle = new int[64], success = new int[64], collision = new int[64];
+
+        /**
+         * True if the frame is the first of its simulation.
+         */
+        private boolean[] firstFrame = new boolean[64];
+
+        /**
+         * True if the next frame is the first of a simulation.
+         */
+        private boolean started;
+
+        /**
+         * The number of recorded frames.
+         */
+        private int count;
+
+        /**
+         * Initializes the recorder with the estimator.
+         *
+         * @param estimator the recorded estimator
+         */
+        private FrameRecorder(Estimator estimator) {
+            this.estimator = estimator;
+        }
+
+        /**
+         * Records the frames of the estimator in simulations with the received tag count.
+         *
+         * @param estimator the estimator
+         * @param tagCount  the tag count
+         * @param runs      the number of simulations
+         * @return the recorded frames
+         */
+        private static FrameRecorder record(Estimator estimator, int tagCount, int runs) {
+            FrameRecorder recorder = new FrameRecorder(estimator);
+            for (int run = 0; run < runs; run++) {
+                recorder.estimator = estimator.copy();
+                Simulator.simulate(recorder, tagCount, RandomStream.seed(tagCount, run));
+            }
+            return recorder;
+        }
+
+        @Override
+        public String getName() {
+            return estimator.getName();
+        }
+
+        @Override
+        public Type getType() {
+            return estimator.getType();
+        }
+
+        @Override
+        public int initialFrameSize() {
+            return estimator.initialFrameSize();
+        }
+
+        @Override
+        public int nextFrameSize(int idle, int success, int collision) {
+            if (count == this.idle.length) {
+                this.idle = Arrays.copyOf(this.idle, count * 2);
+                this.success = Arrays.copyOf(this.success, count * 2);
+                this.collision = Arrays.copyOf(this.collision, count * 2);
+                firstFrame = Arrays.copyOf(firstFrame, count * 2);
+            }
+            firstFrame[count] = started;
+            started = false;
+            this.idle[count] = idle;
+            this.success[count] = success;
+            this.collision[count] = collision;
+            count++;
+            return estimator.nextFrameSize(idle, success, collision);
+        }
+
+        @Override
+        public void setSimulationResult(SimulationResult simulationResult) {
+            started = true;
+            estimator.setSimulationResult(simulationResult);
+        }
+
+        @Override
+        public Estimator copy() {
+            return new FrameRecorder(estimator.copy());
+        }
+
+        @Override
+        public String toString() {
+            return estimator.toString();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package benchmark;
+
+import estimator.Estimator;
+import simulator.OccupancySimulator;
+import simulator.RandomStream;
+import simulator.Simulator;
+import sweep.SweepSpec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks complete simulations of the estimators across tag counts, by default one estimator of each
+ * {@link Estimator.Type} is used. Each operation is one simulation with a different seed.
+ * <p>
+ * Arguments (and the {@link Benchmark} common arguments):
+ * <pre>
+ * -e, -estimator NAME[:PARAM...]  estimator to simulate, can be repeated (default LowerBound:64 and QAlgorithm:6:0.1)
+ * -tags N[,N...]                  tag counts (default 100,1000,10000)
+ * -occupancy                      simulates simple estimators with the occupancy simulator
+ * </pre>
+ *
+ * @author Pedro Henrique
+ */
+public class SimulatorBenchmark {
+
+    /**
+     * Prevents instantiation.
+     */
+    private SimulatorBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        Benchmark benchmark = new Benchmark();
+        List<Estimator> estimators = new ArrayList<>();
+        int[] tagCounts = {100, 1000, 10000};
+        boolean occupancy = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (benchmark.parseOption(args, i)) {
+                    i++;
+                    continue;
+                }
+                switch (args[i]) {
+                    case "-e":
+                    case "-estimator":
+                        estimators.add(SweepSpec.parseEstimator(value(args, ++i)));
+                        break;
+                    case "-tags":
+                        tagCounts = Benchmark.parseInts(value(args, ++i));
+                        break;
+                    case "-occupancy":
+                        occupancy = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: SimulatorBenchmark [-e NAME[:PARAM...]] [-e ...] [-tags N[,N...]] [-occupancy] [-warmup N] [-iterations N] [-time MS]");
+            System.exit(1);
+            return;
+        }
+        if (estimators.isEmpty()) {
+            estimators.add(SweepSpec.parseEstimator("LowerBound:64"));
+            estimators.add(SweepSpec.parseEstimator("QAlgorithm:6:0.1"));
+        }
+
+        Benchmark.printHeader();
+        for (Estimator estimator : estimators) {
+            for (int tagCount : tagCounts) {
+                String name = (occupancy ? "occupancy " : "simulate ") + estimator.getName() + " " + estimator.getType();
+                boolean occupancySimulator = occupancy;
+                long[] seed = {0};
+                benchmark.run(name, "tags=" + tagCount, operations -> {
+                    long slots = 0;
+                    for (int i = 0; i < operations; i++) {
+                        long runSeed = RandomStream.seed(0, seed[0]++);
+                        slots += occupancySimulator
+                                ? OccupancySimulator.simulate(estimator.copy(), tagCount, runSeed).createdSlots
+                                : Simulator.simulate(estimator.copy(), tagCount, runSeed).createdSlots;
+                    }
+                    return slots;
+                });
+            }
+        }
+    }
+
+    /**
+     * Returns the value of an argument.
+     *
+     * @param args  the arguments
+     * @param index the value index
+     * @return the value
+     * @throws IllegalArgumentException if there is no value
+     */
+    static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value of " + args[index - 1]);
+        }
+        return args[index];
+    }
+}
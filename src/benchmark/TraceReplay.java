@@ -0,0 +1,279 @@
+package benchmark;
+
+import estimator.Estimator;
+import simulator.SimulationResult;
+import simulator.Statistic;
+import simulator.TraceReader;
+import sweep.SweepSpec;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Replays the frames of a trace file (see {@link simulator.TraceWriter}) in the
+ * {@link Estimator#nextFrameSize(int, int, int)} of the estimators, without simulating tags, so the estimators are
+ * measured in isolation with the inputs of real sweeps. Each operation is one call and the calls cycle over all traced
+ * frames, after the throughput the latency of each call is measured in one pass over the frames. With -compare the
+ * estimators are not measured, their frame sizes of the same frames are compared with the first estimator.
+ * <p>
+ * The estimator receives a new simulation ({@link Estimator#setSimulationResult(SimulationResult)}) at the first frame
+ * of each traced simulation, so the estimators that keep state between frames, like the warm started
+ * {@link estimator.EomLee}, do not carry it from one simulation to the next.
+ * <p>
+ * Only {@link Estimator.Type#SIMPLE_DFSA} estimators are replayed, the complex estimators are called once per slot.
+ * <p>
+ * Arguments (and the {@link Benchmark} common arguments):
+ * <pre>
+ * -trace FILE                     the trace file
+ * -e, -estimator NAME[:PARAM...]  estimator to replay, can be repeated (default LowerBound, Schoute, EomLee, Chen and
+ *                                 Vahedi)
+ * -frames N                       max number of frames read from the trace (default all)
+ * -compare                        compares the frame sizes of the estimators instead of measuring them
+ * </pre>
+ *
+ * @author Pedro Henrique
+ */
+public class TraceReplay {
+
+    /**
+     * Prevents instantiation.
+     */
+    private TraceReplay() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Benchmark benchmark = new Benchmark();
+        List<Estimator> estimators = new ArrayList<>();
+        String trace = null;
+        int maxFrames = Integer.MAX_VALUE;
+        boolean compare = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (benchmark.parseOption(args, i)) {
+                    i++;
+                    continue;
+                }
+                switch (args[i]) {
+                    case "-trace":
+                        trace = SimulatorBenchmark.value(args, ++i);
+                        break;
+                    case "-e":
+                    case "-estimator":
+                        estimators.add(SweepSpec.parseEstimator(SimulatorBenchmark.value(args, ++i)));
+                        break;
+                    case "-frames":
+                        maxFrames = Math.max(1, Benchmark.parseInts(SimulatorBenchmark.value(args, ++i))[0]);
+                        break;
+                    case "-compare":
+                        compare = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                }
+            }
+            if (trace == null) {
+                throw new IllegalArgumentException("The trace file is required");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: TraceReplay -trace FILE [-e NAME[:PARAM...]] [-e ...] [-frames N] [-compare] [-warmup N] [-iterations N] [-time MS]");
+            System.exit(1);
+            return;
+        }
+        if (estimators.isEmpty()) {
+            for (String name : new String[]{"LowerBound", "Schoute", "EomLee", "Chen", "Vahedi"}) {
+                estimators.add(SweepSpec.parseEstimator(name));
+            }
+        }
+        for (Estimator estimator : estimators) {
+            if (estimator.getType() != Estimator.Type.SIMPLE_DFSA) {
+                System.err.println(estimator + " skipped, only simple estimators are replayed");
+            }
+        }
+        estimators.removeIf(estimator -> estimator.getType() != Estimator.Type.SIMPLE_DFSA);
+        if (estimators.isEmpty()) {
+            return;
+        }
+
+        // The trace errors are reported like the argument errors, without the stack trace
+        Frames frames;
+        try {
+            frames = Frames.read(trace, maxFrames);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        } catch (IOException e) {
+            System.err.println("Cannot read the trace " + trace + ": " + e);
+            System.exit(1);
+            return;
+        }
+        System.out.println("Replaying " + frames.count + " frames of " + frames.simulations + " simulations");
+        if (compare) {
+            compare(estimators, frames);
+        } else {
+            Benchmark.printHeader();
+            for (Estimator estimator : estimators) {
+                measure(benchmark, estimator, frames);
+            }
+        }
+    }
+
+    /**
+     * Measures the throughput and the latency of the estimator with the traced frames.
+     *
+     * @param benchmark the benchmark
+     * @param estimator the estimator
+     * @param frames    the traced frames
+     */
+    private static void measure(Benchmark benchmark, Estimator estimator, Frames frames) {
+        String name = "replay " + estimator.getName();
+        String parameter = "frames=" + frames.count;
+        Estimator measured = estimator.copy();
+        SimulationResult simulationResult = new SimulationResult();
+        int[] next = {0};
+        benchmark.run(name, parameter, operations -> {
+            long sizes = 0;
+            int frame = next[0];
+            for (int i = 0; i < operations; i++) {
+                if (frames.firstFrame[frame]) {
+                    measured.setSimulationResult(simulationResult);
+                }
+                sizes += measured.nextFrameSize(frames.idle[frame], frames.success[frame], frames.collision[frame]);
+                if (++frame == frames.count) {
+                    frame = 0;
+                }
+            }
+            next[0] = frame;
+            return sizes;
+        });
+
+        // The latency of each call, the estimator is already compiled by the benchmark
+        Statistic latency = new Statistic();
+        long sizes = 0;
+        for (int frame = 0; frame < frames.count; frame++) {
+            if (frames.firstFrame[frame]) {
+                measured.setSimulationResult(simulationResult);
+            }
+            long start = System.nanoTime();
+            sizes += measured.nextFrameSize(frames.idle[frame], frames.success[frame], frames.collision[frame]);
+            latency.add(System.nanoTime() - start);
+        }
+        Benchmark.consume(sizes);
+        System.out.printf("%-36s %-12s latency p50 %.0f p99 %.0f p99.9 %.0f max %.0f ns%n", name, parameter,
+                latency.percentile(0.5), latency.percentile(0.99), latency.percentile(0.999), latency.max());
+    }
+
+    /**
+     * Compares the frame sizes of the estimators with the first estimator, with the same frames. The iterations are
+     * the mean of the internal iterations of each call.
+     *
+     * @param estimators the estimators, the first is the reference
+     * @param frames     the traced frames
+     */
+    private static void compare(List<Estimator> estimators, Frames frames) {
+        int[][] frameSizes = new int[estimators.size()][frames.count];
+        double[] iterations = new double[estimators.size()];
+        for (int e = 0; e < estimators.size(); e++) {
+            Estimator estimator = estimators.get(e).copy();
+            SimulationResult simulationResult = new SimulationResult();
+            for (int frame = 0; frame < frames.count; frame++) {
+                if (frames.firstFrame[frame]) {
+                    estimator.setSimulationResult(simulationResult);
+                }
+                frameSizes[e][frame] = estimator.nextFrameSize(frames.idle[frame], frames.success[frame], frames.collision[frame]);
+            }
+            iterations[e] = (double) simulationResult.iterations / frames.count;
+        }
+
+        Estimator reference = estimators.get(0);
+        System.out.printf("%-36s %10s %12s %12s %10s%n", "Estimator", "Differing", "MaxDiff", "MeanDiff", "Iterations");
+        for (int e = 0; e < estimators.size(); e++) {
+            int differing = 0;
+            int firstDiffering = -1;
+            long maxDifference = 0;
+            double differenceSum = 0;
+            for (int frame = 0; frame < frames.count; frame++) {
+                long difference = Math.abs((long) frameSizes[e][frame] - frameSizes[0][frame]);
+                if (difference != 0) {
+                    differing++;
+                    firstDiffering = firstDiffering < 0 ? frame : firstDiffering;
+                }
+                maxDifference = Math.max(maxDifference, difference);
+                differenceSum += difference;
+            }
+            System.out.printf("%-36s %10d %12d %12.3f %10.2f%n", estimators.get(e), differing, maxDifference,
+                    differenceSum / frames.count, iterations[e]);
+            if (firstDiffering >= 0) {
+                System.out.printf("    first difference (%d, %d, %d): %s %d, %s %d%n", frames.idle[firstDiffering],
+                        frames.success[firstDiffering], frames.collision[firstDiffering], reference,
+                        frameSizes[0][firstDiffering], estimators.get(e), frameSizes[e][firstDiffering]);
+            }
+        }
+    }
+
+    /**
+     * The frames of a trace, concatenated in the trace order, the first frame of each simulation is marked.
+     */
+    private static class Frames {
+
+        /**
+         * The traced frames, only the first count are valid.
+         */
+        private int[] idle = new int[1024], success = new int[1024], collision = new int[1024];
+
+        /**
+         * True if the frame is the first of its simulation.
+         */
+        private boolean[] firstFrame = new boolean[1024];
+
+        /**
+         * The number of frames.
+         */
+        private int count;
+
+        /**
+         * The number of read simulations.
+         */
+        private int simulations;
+
+        /**
+         * Reads the frames of a trace file.
+         *
+         * @param file      the trace file
+         * @param maxFrames the max number of frames
+         * @return the frames
+         * @throws IOException if the trace cannot be read
+         */
+        private static Frames read(String file, int maxFrames) throws IOException {
+            Frames frames = new Frames();
+            try (TraceReader reader = new TraceReader(Paths.get(file))) {
+                while (frames.count < maxFrames && reader.next()) {
+                    frames.simulations++;
+                    int count = Math.min(reader.frames, maxFrames - frames.count);
+                    if (frames.idle.length < frames.count + count) {
+                        int capacity = Math.max(frames.idle.length * 2, frames.count + count);
+                        frames.idle = Arrays.copyOf(frames.idle, capacity);
+                        frames.success = Arrays.copyOf(frames.success, capacity);
+                        frames.collision = Arrays.copyOf(frames.collision, capacity);
+                        frames.firstFrame = Arrays.copyOf(frames.firstFrame, capacity);
+                    }
+                    if (count > 0) {
+                        frames.firstFrame[frames.count] = true;
+                    }
+                    System.arraycopy(reader.idle, 0, frames.idle, frames.count, count);
+                    System.arraycopy(reader.success, 0, frames.success, frames.count, count);
+                    System.arraycopy(reader.collision, 0, frames.collision, frames.count, count);
+                    frames.count += count;
+                }
+            }
+            if (frames.count == 0) {
+                throw new IllegalArgumentException("The trace has no frames: " + file);
+            }
+            return frames;
+        }
+    }
+}
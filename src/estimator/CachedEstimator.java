@@ -0,0 +1,106 @@
+package estimator;
+
+import simulator.SimulationResult;
+
+/**
+ * Estimator decorator that saves the frame sizes of a pure {@link Type#SIMPLE_DFSA} estimator, whose frame size
+ * depends only on the (idle, success, collision) triple, in an {@link EstimatorCache}. The copies share the cache, so
+ * all threads and runs of a sweep reuse the same frame sizes. The iterations of cached frames are not counted, they
+ * are not executed. The estimators that keep state between frames, like the warm started {@link EomLee}, are not
+ * pure (see {@link Estimator#isPure()}) and cannot be cached.
+ *
+ * @author Pedro Henrique
+ */
+public class CachedEstimator implements Estimator {
+
+    /**
+     * The cached estimator.
+     */
+    private final Estimator estimator;
+
+    /**
+     * The shared cache.
+     */
+    private final EstimatorCache cache;
+
+    /**
+     * Initializes the cached estimator with a new cache.
+     *
+     * @param estimator the pure estimator
+     * @param capacity  the cache capacity
+     * @throws IllegalArgumentException if the estimator is not a pure {@link Type#SIMPLE_DFSA} or the capacity is
+     *                                  invalid
+     */
+    public CachedEstimator(Estimator estimator, int capacity) {
+        this(estimator, new EstimatorCache(capacity));
+    }
+
+    /**
+     * Initializes the cached estimator with the received cache.
+     *
+     * @param estimator the pure estimator
+     * @param cache     the cache
+     * @throws IllegalArgumentException if the estimator is not a pure {@link Type#SIMPLE_DFSA}
+     */
+    public CachedEstimator(Estimator estimator, EstimatorCache cache) {
+        if (estimator.getType() != Type.SIMPLE_DFSA || !estimator.isPure()) {
+            throw new IllegalArgumentException("Only pure simple DFSA estimators can be cached: " + estimator);
+        }
+        this.estimator = estimator;
+        this.cache = cache;
+    }
+
+    /**
+     * Returns the shared cache.
+     *
+     * @return the cache
+     */
+    public EstimatorCache getCache() {
+        return cache;
+    }
+
+    @Override
+    public String getName() {
+        return estimator.getName();
+    }
+
+    @Override
+    public String toString() {
+        return estimator.toString();
+    }
+
+    @Override
+    public Type getType() {
+        return estimator.getType();
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
+    @Override
+    public int initialFrameSize() {
+        return estimator.initialFrameSize();
+    }
+
+    @Override
+    public int nextFrameSize(int idle, int success, int collision) {
+        int frameSize = cache.get(idle, success, collision);
+        if (frameSize < 0) {
+            frameSize = estimator.nextFrameSize(idle, success, collision);
+            cache.put(idle, success, collision, frameSize);
+        }
+        return frameSize;
+    }
+
+    @Override
+    public void setSimulationResult(SimulationResult simulationResult) {
+        estimator.setSimulationResult(simulationResult);
+    }
+
+    @Override
+    public Estimator copy() {
+        return new CachedEstimator(estimator.copy(), cache);
+    }
+}
@@ -33,6 +33,11 @@ public class Chen implements Estimator {
         return Type.SIMPLE_DFSA;
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public int initialFrameSize() {
         return initialFrameSize;
@@ -53,16 +58,78 @@ public class Chen implements Estimator {
         double l = i + s + c;
         double n = s + c * 2;
 
-        double next = 0;
-        double previous = -1;
+        // The likelihood is calculated in log space, the factorials and powers overflow with large frames
+        double logFatL_fatIfatSfatC = MathUtils.logFactAndDiv(l, i, s, c);
 
-        //
-        double not1_LpowN1 = Math.pow(1 - 1 / l, n - 1);
-        double not1_LpowN = not1_LpowN1 * (1 - 1 / l);
+        // The likelihood of n0 = s + 2c must be valid, otherwise n0 - 1 is the estimate
+        if (!(Double.NEGATIVE_INFINITY < logLikelihood(n, i, s, c, l, logFatL_fatIfatSfatC))) {
+            int nextFrameSize = (int) (n - 1) - success;
+            return nextFrameSize > 0 ? nextFrameSize : 2;
+        }
 
-        double fatL_fatIfatSfatC = MathUtils.factAndDiv(l, i, s, c);
+        // All collisions, the likelihood increases until the probabilities round off, there is no peak to bracket
+        if (idle == 0 && success == 0) {
+            return scan(n, i, s, c, l, logFatL_fatIfatSfatC);
+        }
 
-        while (previous < next) {
+        /*
+         * The likelihood is unimodal in n, the estimate is the first n (from n0) whose next likelihood does not
+         * increase. Instead of incrementing n until the likelihood stops increasing, the estimate is bracketed with
+         * exponential steps from the Schoute estimate (s + 2.39c), and found with binary search
+         */
+        double low;
+        double high;
+        double step = 1;
+        double guess = Math.max(n, Math.floor(s + 2.39 * c));
+        if (isPeak(guess, i, s, c, l, logFatL_fatIfatSfatC)) {
+            high = guess;
+            low = guess - step;
+            while (low >= n && isPeak(low, i, s, c, l, logFatL_fatIfatSfatC)) {
+                high = low;
+                step *= 2;
+                low -= step;
+            }
+            low = Math.max(low + 1, n);
+        } else {
+            low = guess + 1;
+            high = guess + step;
+            while (!isPeak(high, i, s, c, l, logFatL_fatIfatSfatC)) {
+                low = high + 1;
+                step *= 2;
+                high += step;
+            }
+        }
+        while (low < high) {
+            double middle = Math.floor((low + high) / 2);
+            if (isPeak(middle, i, s, c, l, logFatL_fatIfatSfatC)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        int nextFrameSize = (int) low - success;
+        return nextFrameSize > 0 ? nextFrameSize : 2;
+    }
+
+    /**
+     * Increments n until the likelihood stops increasing, the powers are updated incrementally. With all collisions the
+     * likelihood increases with n in exact arithmetic, the scan stops where the rounding stops it, so the bracketed
+     * search, that expects a single peak, is not used.
+     *
+     * @param n                    the first number of tags
+     * @param i                    number of idle slots
+     * @param s                    number of success slots
+     * @param c                    number of collision slots
+     * @param l                    the frame size
+     * @param logFatL_fatIfatSfatC log(l!/(i!*s!*c!))
+     * @return the new frame size
+     */
+    private int scan(double n, double i, double s, double c, double l, double logFatL_fatIfatSfatC) {
+        double previous;
+        double next = Double.NEGATIVE_INFINITY;
+        double not1_LpowN1 = Math.pow(1 - 1 / l, n - 1);
+        double not1_LpowN = not1_LpowN1 * (1 - 1 / l);
+        do {
             simulationResult.iterations++;
 
             double pI = not1_LpowN;
@@ -75,12 +142,48 @@ public class Chen implements Estimator {
             previous = next;
             n++;
 
-            next = fatL_fatIfatSfatC * Math.pow(pI, i) * Math.pow(pS, s) * Math.pow(pC, c);
-        }
-        int nextFrameSize = (int) (n - 2d) - success;
+            next = logFatL_fatIfatSfatC + MathUtils.logPow(pI, i) + MathUtils.logPow(pS, s) + MathUtils.logPow(pC, c);
+        } while (previous < next);
+        int nextFrameSize = (int) (n - 2d) - (int) s;
         return nextFrameSize > 0 ? nextFrameSize : 2;
     }
 
+    /**
+     * Returns true if the likelihood of n + 1 tags is not greater than the likelihood of n tags.
+     *
+     * @param n                    the number of tags
+     * @param i                    number of idle slots
+     * @param s                    number of success slots
+     * @param c                    number of collision slots
+     * @param l                    the frame size
+     * @param logFatL_fatIfatSfatC log(l!/(i!*s!*c!))
+     * @return true if the likelihood does not increase after n
+     */
+    private boolean isPeak(double n, double i, double s, double c, double l, double logFatL_fatIfatSfatC) {
+        return !(logLikelihood(n, i, s, c, l, logFatL_fatIfatSfatC) < logLikelihood(n + 1, i, s, c, l, logFatL_fatIfatSfatC));
+    }
+
+    /**
+     * Calculates the log of the likelihood of n tags producing the frame.
+     *
+     * @param n                    the number of tags
+     * @param i                    number of idle slots
+     * @param s                    number of success slots
+     * @param c                    number of collision slots
+     * @param l                    the frame size
+     * @param logFatL_fatIfatSfatC log(l!/(i!*s!*c!))
+     * @return the log likelihood
+     */
+    private double logLikelihood(double n, double i, double s, double c, double l, double logFatL_fatIfatSfatC) {
+        simulationResult.iterations++;
+
+        double not1_LpowN1 = Math.pow(1 - 1 / l, n - 1);
+        double pI = not1_LpowN1 * (1 - 1 / l);
+        double pS = (n / l) * not1_LpowN1;
+        double pC = 1 - pI - pS;
+        return logFatL_fatIfatSfatC + MathUtils.logPow(pI, i) + MathUtils.logPow(pS, s) + MathUtils.logPow(pC, c);
+    }
+
     /**
      * Saves the simulation result internally to count the number of iterations.
      */
@@ -2,12 +2,20 @@ package estimator;
 
 import simulator.SimulationResult;
 
+import java.util.Arrays;
+
 /**
  * Lower bound estimator implementation.
  *
  * @author Pedro Henrique
  */
 public class EomLee implements Estimator {
+
+    /**
+     * The collision ratio of the first frame iteration, when there is no previous frame.
+     */
+    private static final double INITIAL_YK = 2;
+
     private final int initialFrameSize;
 
     /**
@@ -15,6 +23,23 @@ public class EomLee implements Estimator {
      */
     private float threshold;
 
+    /**
+     * The collision ratio of the previous frame, the next frame starts from it.
+     */
+    private double previousYk = INITIAL_YK;
+
+    /**
+     * The simulation results of the previous batch and the collision ratio of the last frame of each, in the batch
+     * order, and the arrays of the current batch, swapped after each batch.
+     */
+    private SimulationResult[] batchResults = new SimulationResult[0], nextBatchResults = new SimulationResult[0];
+    private double[] batchYk = new double[0], nextBatchYk = new double[0];
+
+    /**
+     * The number of simulations of the previous batch.
+     */
+    private int batchCount;
+
     /**
      * Initializes the lower bound with the received initial frame size and threshold.
      *
@@ -43,20 +68,113 @@ public class EomLee implements Estimator {
 
     @Override
     public int nextFrameSize(int idle, int success, int collision) {
+
+        // If has no collisions return 0, the next frame size is yk * collision
+        if (collision == 0) {
+            return 0;
+        }
+        previousYk = solve(previousYk, idle, success, collision);
+        return (int) Math.ceil(previousYk * collision);
+    }
+
+    /**
+     * Calculates the frame sizes in a tight loop. Each simulation is warm started from the solution of its own previous
+     * frame, the simulations are identified by their results and keep their order between batches, so each simulation
+     * has the same frame sizes of {@link #nextFrameSize(int, int, int)}. The simulations not in the previous batch
+     * start from the initial collision ratio.
+     */
+    @Override
+    public void nextFrameSizes(int count, int[] idle, int[] success, int[] collision, int[] nextFrameSizes, SimulationResult[] simulationResults) {
+        if (nextBatchResults.length < count) {
+            nextBatchResults = new SimulationResult[count];
+            nextBatchYk = new double[count];
+        }
+        int previous = 0;
+        for (int k = 0; k < count; k++) {
+            simulationResult = simulationResults[k];
+
+            // The previous batch has the same simulations in the same order, except the finished ones
+            int match = previous;
+            while (match < batchCount && batchResults[match] != simulationResult) {
+                match++;
+            }
+            double yk = INITIAL_YK;
+            if (match < batchCount) {
+                yk = batchYk[match];
+                previous = match + 1;
+            }
+            if (collision[k] != 0) {
+                yk = solve(yk, idle[k], success[k], collision[k]);
+                nextFrameSizes[k] = (int) Math.ceil(yk * collision[k]);
+            } else {
+                nextFrameSizes[k] = 0;
+            }
+            nextBatchResults[k] = simulationResult;
+            nextBatchYk[k] = yk;
+        }
+
+        // Swapping the batches, the results of the old batch are released
+        SimulationResult[] results = batchResults;
+        batchResults = nextBatchResults;
+        nextBatchResults = results;
+        double[] yks = batchYk;
+        batchYk = nextBatchYk;
+        nextBatchYk = yks;
+        Arrays.fill(nextBatchResults, 0, Math.min(batchCount, nextBatchResults.length), null);
+        batchCount = count;
+    }
+
+    /**
+     * Solves the collision ratio of a frame.
+     *
+     * @param start     the collision ratio that starts the iteration
+     * @param idle      number of idle slots
+     * @param success   number of success slots
+     * @param collision number of collision slots, greater than 0
+     * @return the collision ratio
+     */
+    private double solve(double start, int idle, int success, int collision) {
+
+        /*
+         * Solves yk = g(yk) with Steffensen's method (Aitken acceleration of the fixed point iteration), starting from
+         * the previous frame solution, consecutive frames usually have similar collision ratios. The iteration stops
+         * when a plain fixed point step changes yk less than the threshold, like the plain iteration
+         */
         int l = idle + success + collision;
-        float yk = 2;
+        double yk = start;
         while (true) {
-            simulationResult.iterations++;
-
-            float oldYk = yk;
-            float bk = l / (oldYk * collision + success);
-            float exp = (float) Math.exp(-1 / bk);
-            yk = (1 - exp) / (bk * (1 - (1 + 1 / bk) * exp));
-            if (Math.abs(oldYk - yk) < threshold) {
+            double yk1 = nextYk(yk, l, success, collision);
+            if (Math.abs(yk1 - yk) < threshold) {
+                yk = yk1;
+                break;
+            }
+            double yk2 = nextYk(yk1, l, success, collision);
+            if (Math.abs(yk2 - yk1) < threshold) {
+                yk = yk2;
                 break;
             }
+            double denominator = yk2 - 2 * yk1 + yk;
+            double accelerated = yk - (yk1 - yk) * (yk1 - yk) / denominator;
+            yk = accelerated > 0 && !Double.isInfinite(accelerated) ? accelerated : yk2;
         }
-        return (int) Math.ceil(yk * collision);
+        return yk;
+    }
+
+    /**
+     * Calculates a fixed point iteration step of the Eom-Lee estimator.
+     *
+     * @param yk        the current collision ratio
+     * @param l         the frame size
+     * @param success   number of success slots
+     * @param collision number of collision slots
+     * @return the next collision ratio
+     */
+    private double nextYk(double yk, int l, int success, int collision) {
+        simulationResult.iterations++;
+
+        double bk = l / (yk * collision + success);
+        double exp = Math.exp(-1 / bk);
+        return (1 - exp) / (bk * (1 - (1 + 1 / bk) * exp));
     }
 
     /**
@@ -64,9 +182,14 @@ public class EomLee implements Estimator {
      */
     private SimulationResult simulationResult;
 
+    /**
+     * Saves the simulation result and restarts the solver from {@link #INITIAL_YK}, so the frame sizes of a simulation
+     * do not depend on the previous simulations of this instance.
+     */
     @Override
     public void setSimulationResult(SimulationResult simulationResult) {
         this.simulationResult = simulationResult;
+        previousYk = INITIAL_YK;
     }
 
     @Override
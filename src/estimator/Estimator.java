@@ -27,6 +27,16 @@ public interface Estimator {
      */
     Type getType();
 
+    /**
+     * Returns true if the frame size depends only on the received frame ({@link Type#SIMPLE_DFSA}), so the frame sizes
+     * can be cached or precomputed. The estimators that keep state between frames are not pure. By default false.
+     *
+     * @return true if the estimator is pure
+     */
+    default boolean isPure() {
+        return false;
+    }
+
     /**
      * Gets the initial frame size
      *
@@ -45,6 +55,27 @@ public interface Estimator {
      */
     int nextFrameSize(int idle, int success, int collision);
 
+    /**
+     * Calculates the next frame sizes of many {@link Type#SIMPLE_DFSA} simulations that run in lockstep, the element
+     * k is the frame of the simulation k. Between calls the simulations keep their order, the finished ones (next
+     * frame size 0) are removed, so the estimators that keep state between frames keep it per simulation, identified
+     * by its simulation result. By default {@link #nextFrameSize(int, int, int)} is called for each element, so only
+     * the estimators without state use the default.
+     *
+     * @param count             the number of frames
+     * @param idle              number of idle slots of each frame
+     * @param success           number of success slots of each frame
+     * @param collision         number of collision slots of each frame
+     * @param nextFrameSizes    the array that receives the new frame sizes
+     * @param simulationResults the simulation result of each frame, receives the estimator information
+     */
+    default void nextFrameSizes(int count, int[] idle, int[] success, int[] collision, int[] nextFrameSizes, SimulationResult[] simulationResults) {
+        for (int k = 0; k < count; k++) {
+            setSimulationResult(simulationResults[k]);
+            nextFrameSizes[k] = nextFrameSize(idle[k], success[k], collision[k]);
+        }
+    }
+
     /**
      * Sets the simulation result to the estimator write some information in it. By default this method do nothing.
      */
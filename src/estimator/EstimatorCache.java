@@ -0,0 +1,155 @@
+package estimator;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of frame sizes, indexed by the (idle, success, collision) triple. It is direct mapped, each triple has
+ * only one possible position and a new triple evicts the old one, so there is no locking. The entries are immutable,
+ * so they are safely shared between threads without synchronization, a thread may miss an entry recently saved by
+ * other thread, but never sees a partial entry.
+ *
+ * @author Pedro Henrique
+ */
+public class EstimatorCache {
+
+    /**
+     * The cached entries, the length is a power of two.
+     */
+    private final Entry[] entries;
+
+    /**
+     * The number of hits and misses.
+     */
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+
+    /**
+     * Initializes the cache with the received capacity, it is rounded up to a power of two.
+     *
+     * @param capacity the max number of entries
+     * @throws IllegalArgumentException if the capacity is not positive or is greater than 2^30
+     */
+    public EstimatorCache(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid cache capacity: " + capacity);
+        }
+        entries = new Entry[capacity > 1 ? Integer.highestOneBit(capacity - 1) << 1 : 1];
+    }
+
+    /**
+     * Returns the cached frame size of the triple.
+     *
+     * @param idle      number of idle slots
+     * @param success   number of success slots
+     * @param collision number of collision slots
+     * @return the frame size, -1 if it is not cached
+     */
+    public int get(int idle, int success, int collision) {
+        Entry entry = entries[index(idle, success, collision)];
+        if (entry != null && entry.idle == idle && entry.success == success && entry.collision == collision) {
+            hits.increment();
+            return entry.frameSize;
+        }
+        misses.increment();
+        return -1;
+    }
+
+    /**
+     * Saves the frame size of the triple, the entry in its position is evicted.
+     *
+     * @param idle      number of idle slots
+     * @param success   number of success slots
+     * @param collision number of collision slots
+     * @param frameSize the frame size
+     */
+    public void put(int idle, int success, int collision, int frameSize) {
+        entries[index(idle, success, collision)] = new Entry(idle, success, collision, frameSize);
+    }
+
+    /**
+     * Returns the max number of entries.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return entries.length;
+    }
+
+    /**
+     * Returns the number of cache hits.
+     *
+     * @return the number of hits
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of cache misses.
+     *
+     * @return the number of misses
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the fraction of lookups that hit the cache.
+     *
+     * @return the hit rate, 0 if there is no lookups
+     */
+    public double hitRate() {
+        long hits = hits();
+        long lookups = hits + misses();
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits %d, misses %d, hit rate %.2f%%", hits(), misses(), hitRate() * 100);
+    }
+
+    /**
+     * Calculates the position of the triple.
+     *
+     * @param idle      number of idle slots
+     * @param success   number of success slots
+     * @param collision number of collision slots
+     * @return the entry index
+     */
+    private int index(int idle, int success, int collision) {
+        int hash = (idle * 0x9E3779B9 + success) * 0x85EBCA6B + collision;
+        hash *= 0xC2B2AE35;
+        return (hash ^ hash >>> 16) & (entries.length - 1);
+    }
+
+    /**
+     * An immutable cache entry.
+     */
+    private static class Entry {
+
+        /**
+         * The frame triple.
+         */
+        private final int idle, success, collision;
+
+        /**
+         * The frame size of the triple.
+         */
+        private final int frameSize;
+
+        /**
+         * Initializes the entry.
+         *
+         * @param idle      number of idle slots
+         * @param success   number of success slots
+         * @param collision number of collision slots
+         * @param frameSize the frame size
+         */
+        private Entry(int idle, int success, int collision, int frameSize) {
+            this.idle = idle;
+            this.success = success;
+            this.collision = collision;
+            this.frameSize = frameSize;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package estimator;
 
+import simulator.SimulationResult;
+
 /**
  * Lower bound estimator implementation.
  *
@@ -31,6 +33,11 @@ public class LowerBound implements Estimator {
         return Type.SIMPLE_DFSA;
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public int initialFrameSize() {
         return initialFrameSize;
@@ -41,6 +48,13 @@ public class LowerBound implements Estimator {
         return 2 * collision;
     }
 
+    @Override
+    public void nextFrameSizes(int count, int[] idle, int[] success, int[] collision, int[] nextFrameSizes, SimulationResult[] simulationResults) {
+        for (int k = 0; k < count; k++) {
+            nextFrameSizes[k] = 2 * collision[k];
+        }
+    }
+
     @Override
     public Estimator copy() {
         return new LowerBound(initialFrameSize);
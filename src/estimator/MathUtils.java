@@ -1,22 +1,35 @@
 package estimator;
 
+import java.util.Arrays;
+
 /**
- * Contains some math helper methods.
+ * Contains some math helper methods. The factorials, arrangements and powers are calculated in log space, so they do
+ * not overflow with large frames, the log factorials of small numbers are cached lazily.
  *
  * @author Pedro Henrique
  */
 public class MathUtils {
 
-    private static final double[][] pow = new double[1010][1010];
+    /**
+     * The max number of cached log factorials (512 KB).
+     */
+    private static final int MAX_CACHED_LOG_FACTORIALS = 1 << 16;
 
-    static {
-        for (int i = 0; i < 1010; i++) {
-            pow[i][0] = 1;
-            for (int j = 1; j < 1010; j++) {
-                pow[i][j] = pow[i][j - 1] * i;
-            }
-        }
-    }
+    /**
+     * Below this value the log gamma argument is shifted before using the Stirling series.
+     */
+    private static final double STIRLING_THRESHOLD = 15;
+
+    /**
+     * The value of log(2 * pi) / 2.
+     */
+    private static final double HALF_LOG_TWO_PI = 0.5 * Math.log(2 * Math.PI);
+
+    /**
+     * The cached log factorials, the cache grows (doubling) until {@link #MAX_CACHED_LOG_FACTORIALS}. The array is
+     * replaced when the cache grows, so it can be read without synchronization.
+     */
+    private static volatile double[] logFactorials = {0, 0};
 
     /**
      * Prevents instantiation.
@@ -24,46 +37,111 @@ public class MathUtils {
     private MathUtils() {
     }
 
-    public static double factorial(double n) {
-        double factorial = 1;
-        for (int i = 2; i < n; i++) {
-            factorial *= i;
+    /**
+     * Calculates log(n!).
+     *
+     * @param n a non negative integer
+     * @return log(n!)
+     */
+    public static double logFactorial(double n) {
+        double[] cache = logFactorials;
+        if (n < cache.length) {
+            return cache[(int) n];
         }
-        return factorial;
+        if (n < MAX_CACHED_LOG_FACTORIALS) {
+            return growLogFactorials((int) n)[(int) n];
+        }
+        return logGamma(n + 1);
     }
 
-    public static double arrangement(double n, double p) {
-        double arrangement = 1;
-        for (double i = n - p + 1; i < n; i++) {
-            arrangement *= i;
-        }
-        return arrangement;
+    /**
+     * Calculates log(n! / (n - p)!), the log of the number of arrangements of p elements from n.
+     *
+     * @param n the number of elements
+     * @param p the number of arranged elements, between 0 and n
+     * @return log(n! / (n - p)!)
+     */
+    public static double logArrangement(double n, double p) {
+        return logFactorial(n) - logFactorial(n - p);
     }
 
-    public static double factAndDiv(double dividend, double... divisors) {
-        double max = -1;
-        int maxIndex = -1;
-        for (int i = 0; i < divisors.length; i++) {
-            if (divisors[i] > max) {
-                max = divisors[i];
-                maxIndex = i;
-            }
+    /**
+     * Calculates log(dividend! / (divisors[0]! * ... * divisors[k]!)), with divisors that sum the dividend it is the
+     * log of the multinomial coefficient.
+     *
+     * @param dividend the dividend factorial argument
+     * @param divisors the divisors factorial arguments
+     * @return the log of the division
+     */
+    public static double logFactAndDiv(double dividend, double... divisors) {
+        double logDivision = logFactorial(dividend);
+        for (double divisor : divisors) {
+            logDivision -= logFactorial(divisor);
         }
-        divisors[maxIndex] = 0;
-        double acc = 1;
-        for (double n = dividend; n > max; n--) {
-            double next = n;
-            for (double divisor : divisors) {
-                if (divisor > 1) {
-                    next /= divisor;
-                }
-            }
-            acc *= next;
+        return logDivision;
+    }
+
+    /**
+     * Calculates log(dividend! / (divisor1! * divisor2! * divisor3!)), like {@link #logFactAndDiv(double, double...)}
+     * without the varargs array, the estimators call it once per frame.
+     *
+     * @param dividend the dividend factorial argument
+     * @param divisor1 the first divisor factorial argument
+     * @param divisor2 the second divisor factorial argument
+     * @param divisor3 the third divisor factorial argument
+     * @return the log of the division
+     */
+    public static double logFactAndDiv(double dividend, double divisor1, double divisor2, double divisor3) {
+        return logFactorial(dividend) - logFactorial(divisor1) - logFactorial(divisor2) - logFactorial(divisor3);
+    }
+
+    /**
+     * Calculates log(base^exponent), with 0^0 = 1.
+     *
+     * @param base     the non negative base
+     * @param exponent the exponent
+     * @return exponent * log(base)
+     */
+    public static double logPow(double base, double exponent) {
+        return exponent == 0 ? 0 : exponent * Math.log(base);
+    }
+
+    /**
+     * Calculates the log of the gamma function with the Stirling series, the arguments lesser than
+     * {@link #STIRLING_THRESHOLD} are shifted with gamma(x) = gamma(x + 1) / x. The absolute error is lesser than 1e-13.
+     *
+     * @param x a positive number
+     * @return log(gamma(x))
+     */
+    public static double logGamma(double x) {
+        double shift = 1;
+        while (x < STIRLING_THRESHOLD) {
+            shift *= x;
+            x++;
         }
-        return acc;
+        double inverse = 1 / x;
+        double inverse2 = inverse * inverse;
+        double series = inverse * (1.0 / 12 - inverse2 * (1.0 / 360 - inverse2 * (1.0 / 1260 - inverse2 / 1680)));
+        return (x - 0.5) * Math.log(x) - x + HALF_LOG_TWO_PI + series - Math.log(shift);
     }
 
-    public static double fastPow(double n, double p) {
-        return pow[(int) n][(int) p];
+    /**
+     * Grows the log factorials cache to contain n.
+     *
+     * @param n the required log factorial, lesser than {@link #MAX_CACHED_LOG_FACTORIALS}
+     * @return the cache
+     */
+    private static synchronized double[] growLogFactorials(int n) {
+        double[] cache = logFactorials;
+        if (n < cache.length) {
+            return cache;
+        }
+        int size = Math.min(MAX_CACHED_LOG_FACTORIALS, Math.max(n + 1, cache.length * 2));
+        double[] grown = Arrays.copyOf(cache, size);
+        for (int k = cache.length; k < size; k++) {
+            grown[k] = k < STIRLING_THRESHOLD ? grown[k - 1] + Math.log(k) : logGamma(k + 1);
+        }
+        logFactorials = grown;
+        return grown;
     }
 }
@@ -1,5 +1,7 @@
 package estimator;
 
+import simulator.SimulationResult;
+
 /**
  * Schoute estimator implementation.
  *
@@ -31,6 +33,11 @@ public class Schoute implements Estimator {
         return Type.SIMPLE_DFSA;
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public int initialFrameSize() {
         return initialFrameSize;
@@ -41,6 +48,13 @@ public class Schoute implements Estimator {
         return (int) Math.ceil(2.39f * collision);
     }
 
+    @Override
+    public void nextFrameSizes(int count, int[] idle, int[] success, int[] collision, int[] nextFrameSizes, SimulationResult[] simulationResults) {
+        for (int k = 0; k < count; k++) {
+            nextFrameSizes[k] = (int) Math.ceil(2.39f * collision[k]);
+        }
+    }
+
     @Override
     public Estimator copy() {
         return new Schoute(initialFrameSize);
@@ -0,0 +1,240 @@
+package estimator;
+
+import simulator.SimulationResult;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Estimator backed by a precomputed table of frame sizes of a pure {@link Type#SIMPLE_DFSA} estimator, the table
+ * contains the frame size of every (idle, success, collision) triple whose sum is lesser or equal to the table max
+ * frame size. The table file is memory mapped, so it has no warm up and is shared by all copies and threads, the
+ * frames greater than the table are calculated by the estimator.
+ * <p>
+ * The file starts with a header: the magic number, the format version, the max frame size, the estimator name and
+ * the estimator description ({@link Estimator#toString()}), the strings are stored as their UTF-8 length and bytes.
+ * The header is padded to 4 bytes and followed by the frame sizes, one int per triple, see
+ * {@link #index(int, int, int)}.
+ *
+ * @author Pedro Henrique
+ */
+public class TableEstimator implements Estimator {
+
+    /**
+     * The magic number of the table files ("DFSA").
+     */
+    public static final int MAGIC = 0x44465341;
+
+    /**
+     * The table file format version.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The max frame size of a table, the table file must be lesser than 2 GB.
+     */
+    public static final int MAX_TABLE_FRAME_SIZE = 1024;
+
+    /**
+     * The estimator of the table.
+     */
+    private final Estimator estimator;
+
+    /**
+     * The table frame sizes.
+     */
+    private final IntBuffer table;
+
+    /**
+     * The max frame size of the table.
+     */
+    private final int maxFrameSize;
+
+    /**
+     * Maps the received table file, the table must be created with an estimator with the same name and description.
+     *
+     * @param estimator the estimator of the table, used to calculate the frames greater than the table
+     * @param file      the table file
+     * @throws IOException              if the table cannot be read
+     * @throws IllegalArgumentException if the table is invalid or was created with other estimator
+     */
+    public TableEstimator(Estimator estimator, Path file) throws IOException {
+        if (estimator.getType() != Type.SIMPLE_DFSA || !estimator.isPure()) {
+            throw new IllegalArgumentException("Only pure simple DFSA estimators can be tabled: " + estimator);
+        }
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.remaining() < 12 || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a table file: " + file);
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported table version " + version + ": " + file);
+        }
+        maxFrameSize = buffer.getInt();
+        String name = readString(buffer);
+        String description = readString(buffer);
+        if (!name.equals(estimator.getName()) || !description.equals(estimator.toString())) {
+            throw new IllegalArgumentException("The table " + file + " was created with " + description + ", not " + estimator);
+        }
+        buffer.position((buffer.position() + 3) & ~3);
+        if (maxFrameSize < 0 || maxFrameSize > MAX_TABLE_FRAME_SIZE || buffer.remaining() != 4 * size(maxFrameSize)) {
+            throw new IllegalArgumentException("Corrupted table file: " + file);
+        }
+        this.estimator = estimator;
+        table = buffer.slice().asIntBuffer();
+    }
+
+    /**
+     * Creates a copy that shares the table.
+     *
+     * @param estimator    the estimator copy
+     * @param table        the table frame sizes
+     * @param maxFrameSize the max frame size of the table
+     */
+    private TableEstimator(Estimator estimator, IntBuffer table, int maxFrameSize) {
+        this.estimator = estimator;
+        this.table = table;
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    /**
+     * Returns the max frame size of the table.
+     *
+     * @return the max frame size
+     */
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+
+    @Override
+    public String getName() {
+        return estimator.getName();
+    }
+
+    @Override
+    public String toString() {
+        return estimator.toString();
+    }
+
+    @Override
+    public Type getType() {
+        return estimator.getType();
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
+    @Override
+    public int initialFrameSize() {
+        return estimator.initialFrameSize();
+    }
+
+    @Override
+    public int nextFrameSize(int idle, int success, int collision) {
+        if (idle + success + collision <= maxFrameSize) {
+            return table.get(index(idle, success, collision));
+        }
+        return estimator.nextFrameSize(idle, success, collision);
+    }
+
+    @Override
+    public void setSimulationResult(SimulationResult simulationResult) {
+        estimator.setSimulationResult(simulationResult);
+    }
+
+    @Override
+    public Estimator copy() {
+        return new TableEstimator(estimator.copy(), table, maxFrameSize);
+    }
+
+    /**
+     * Returns the number of triples of a table, the triples whose sum is lesser or equal to the max frame size.
+     *
+     * @param maxFrameSize the max frame size
+     * @return the number of triples
+     */
+    public static int size(int maxFrameSize) {
+        long layers = maxFrameSize + 1L;
+        return (int) (layers * (layers + 1) * (layers + 2) / 6);
+    }
+
+    /**
+     * Returns the table index of a triple. The triples are ordered by frame size (layer), collision and success, the
+     * layer of the frame size t starts after the t(t+1)(t+2)/6 triples of the smaller frames, and in the layer the
+     * collision count c starts after c(t+1) - c(c-1)/2 triples.
+     *
+     * @param idle      number of idle slots
+     * @param success   number of success slots
+     * @param collision number of collision slots
+     * @return the triple index
+     */
+    public static int index(int idle, int success, int collision) {
+        int t = idle + success + collision;
+        return size(t - 1) + collision * (t + 1) - collision * (collision - 1) / 2 + success;
+    }
+
+    /**
+     * Writes a table file.
+     *
+     * @param file         the table file
+     * @param estimator    the estimator of the table
+     * @param maxFrameSize the max frame size of the table
+     * @param frameSizes   the frame sizes, in {@link #index(int, int, int)} order
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, Estimator estimator, int maxFrameSize, int[] frameSizes) throws IOException {
+        byte[] name = estimator.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] description = estimator.toString().getBytes(StandardCharsets.UTF_8);
+        int headerSize = (20 + name.length + description.length + 3) & ~3;
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.putInt(MAGIC).putInt(VERSION).putInt(maxFrameSize);
+        header.putInt(name.length).put(name);
+        header.putInt(description.length).put(description);
+        header.clear();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            ByteBuffer chunk = ByteBuffer.allocateDirect(1 << 16);
+            for (int i = 0; i < frameSizes.length; ) {
+                chunk.clear();
+                IntBuffer ints = chunk.asIntBuffer();
+                int count = Math.min(ints.capacity(), frameSizes.length - i);
+                ints.put(frameSizes, i, count);
+                chunk.limit(count * 4);
+                while (chunk.hasRemaining()) {
+                    channel.write(chunk);
+                }
+                i += count;
+            }
+        }
+    }
+
+    /**
+     * Reads a header string.
+     *
+     * @param buffer the table buffer
+     * @return the string
+     * @throws IllegalArgumentException if the string length is invalid
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.remaining() >= 4 ? buffer.getInt() : -1;
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Corrupted table header");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
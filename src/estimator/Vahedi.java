@@ -31,6 +31,11 @@ public class Vahedi implements Estimator {
         return Type.SIMPLE_DFSA;
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public int initialFrameSize() {
         return initialFrameSize;
@@ -51,106 +56,164 @@ public class Vahedi implements Estimator {
         double l = i + s + c;
         double n = s + c * 2;
 
-        double next = 0;
-        double previous = -1;
+        double previous;
+        double next = Double.NEGATIVE_INFINITY;
+
+        // The likelihood is calculated in log space, the factorials and powers overflow with large frames
 
         // See P1
-        double notI_LpowN = Math.pow(1 - i / l, n);
+        double logNotI_L = Math.log1p(-i / l);
         // See P2
-        double arrNS = MathUtils.arrangement(n, s);
-        double LIpowN = MathUtils.fastPow(l - i, n);
-        double LISpowNS = Math.pow(l - i - s, n - s);
+        double logC = Math.log(c);
+        double logLI = Math.log(l - i);
         // See P3
-        double CpowNS = MathUtils.fastPow(c, n - s);
+        startCollisionProbability(collision, (int) (n - s));
 
-        double fatL_fatIfatSfatC = MathUtils.factAndDiv(l, i, s, c);
+        double logFatL_fatIfatSfatC = MathUtils.logFactAndDiv(l, i, s, c);
 
-        while (previous < next) {
+        do {
 
             /*
-             * Calculating P1 optimized
+             * Calculating P1 in log space
              *
-             * notI_LpowN = (1-(i/l))^n << outside loops (fast recalculation)
              * p1 = (1-(i/l))^n
-             *    = notI_LpowN
-             *
-             * -- fast recalculation
-             * notI_LpowN = notI_Lpow(N-1) * notI_L
+             * log(p1) = n*log(1-(i/l))
+             *         = n*logNotI_L
              */
-            double p1 = notI_LpowN;
-            notI_LpowN *= 1 - i / l;
+            double logP1 = n * logNotI_L;
 
             /*
-             * Calculating P2 optimized
-             *
-             * arrNS = arr(n s) << outside loops (fast recalculation)
-             * LIpowN = (l-e)^n << outside loops (fast recalculation)
-             * LISpowNS = ('l-i-s')^(n-s) << outside loops (fast recalculation)
+             * Calculating P2 in log space
              *
-             * p2 = 'comb(n s)'*(((l-e-s)^(n-s))/((l-e)^n))*'s!'
-             *    = '(n!/((n-s)!*s!))*s!'*(((l-e-s)^(n-s))/((l-e)^n))
-             *    = '(n!/(n-s)!)'*(((l-e-s)^(n-s))/((l-e)^n))
-             *    = 'arr(n s)'*('((l-e-s)^(n-s)')/('(l-e)^n)')
-             *    = arrNS*LIpowN*LISpowNS
-             *
-             * -- fast recalculation
-             * arrNS = arr(N-1)S*(n/(n-s))
-             * LIpowN = LIpow(N-1)*(l-i)
-             * LISpowNS = LISpow(N-1)S*(l-i-s) ----- (n-s always positive)
+             * p2 = 'comb(n s)'*(((l-i-s)^(n-s))/((l-i)^n))*'s!'
+             *    = 'arr(n s)'*(((l-i-s)^(n-s))/((l-i)^n)) ----- (l-i-s == c)
+             * log(p2) = log(arr(n s))+(n-s)*log(c)-n*log(l-i)
+             *         = log(arr(n s))+(n-s)*logC-n*logLI
              */
-            double p2 = arrNS * LISpowNS / LIpowN;
-            arrNS *= n / (n - s);
-            LIpowN *= l - i;
-            LISpowNS *= (l - i - s);
+            double logP2 = MathUtils.logArrangement(n, s) + (n - s) * logC - n * logLI;
 
             /*
-             * Calculating P3 optimized
-             *
-             * func facDiv(dividend, divisors...) => dividend!/(divisors[0]!*..divisors[n]!) (optimized)
-             *
-             * neg1powKV = -1^(k+v) << inside loop 2
-             * fatNS_fatNSK = facDiv(n-s,n-s-k) << inside loop 1 (more precise and equally faster than fatNS done outside the loops in fatNS/fatNSK)
-             * fatK = k! << inside loop 1
-             * fatC_fatKfatCKVfatV = c!/((c-k)!*(k!'*(c-k-v!)*v!)) << inside loop 2
-             *                     = c!/((c-k)!*(fatK*(c-k-v!)*v!))
-             * CKVpowNSK = (c-k-v)^(n-s-k)
-             * CpowNS = c^(n-s) = (l-i-s)^(n-s) = LISpowNS << outside loops (fast recalculation) (See P2) (l-i-s == c)
-             * CKVpowNSK_CpowNS = (c-k-v)^(n-s-k)/c(n-s) << inside loop 2
-             *                  = ckvPOWnsk / CpowNS
+             * Calculating P3 in log space
              *
-             * p3 = 0
-             * for k=0..c << loop 1
-             *   for v=0..c-k << loop 2
-             *     p3 = p3+(-1^(k+v))*'comb(c k)'*'comb(c-k v)'*((n-s)!/(n-s-k)!)*((c-k-v)^(n-s-k)/c(n-s))
-             *        = p3+(-1^(k+v))*(c!/('(c-k)!*'k!))*('c-k!'/((c-k-v!)*v!))*((n-s)!/(n-s-k)!)*((c-k-v)^(n-s-k)/c(n-s))
-             *        = p3+(-1^(k+v))*(c!/((c-k)!*(k!*(c-k-v!)*v!)))*((n-s)!/(n-s-k)!)*((c-k-v)^(n-s-k)/c(n-s))
-             *        = p3+neg1powKV*fatC_fatKfatCKVfatV*fatNS_fatNSK*
+             * p3 = probability of all c slots having at least two of the n-s remaining tags, the inclusion-exclusion
+             * double sum over k and v is replaced by the occupancy table of the tags in j slots, it is advanced by one
+             * tag each time n increases (See logCollisionProbability)
              */
-            double p3 = 0;
-            for (double k = 0; k <= c; k++) {
-                double fatK = MathUtils.factorial(k);
-                double fatNS_fatNSK = MathUtils.factAndDiv(n - s, n - s - k);
-                for (double v = 0; v <= c - k; v++) {
-                    simulationResult.iterations++;
-
-                    double neg1powKV = Math.pow(-1, k + v);
-                    double fatC_fatKfatCKVfatV = MathUtils.factAndDiv(c, c - k - v, v) / fatK;
-                    double CKVpowNSK = MathUtils.fastPow(c - k - v, n - s - k);
-                    double CKVpowNSK_CpowNS = CKVpowNSK / CpowNS;
-                    p3 += neg1powKV * fatC_fatKfatCKVfatV * fatNS_fatNSK * CKVpowNSK_CpowNS;
-                }
-            }
-            CpowNS *= c;
+            double logP3 = logCollisionProbability();
+            advanceCollisionProbability();
 
             previous = next;
             n++;
 
-            next = fatL_fatIfatSfatC * Math.pow(p1, i) * Math.pow(p2, s) * Math.pow(p3, c);
-        }
+            // p1, p2 and p3 are already the probabilities of all idle, success and collision slots
+            next = logFatL_fatIfatSfatC + logP1 + logP2 + logP3;
+        } while (previous < next);
         int nextFrameSize = (int) (n - 2) - success;
         return nextFrameSize > 0 ? nextFrameSize : 2;
     }
 
+    /**
+     * The value of log(2).
+     */
+    private static final double LN2 = Math.log(2);
+
+    /**
+     * The probabilities of m tags in j slots leaving no slot with less than two tags, Q(m, j) = j! * S2(m, j) / j^m,
+     * where S2 are the associated Stirling numbers of the second kind. Q(m, j) = 0 if m < 2j and Q(m, c) only depends
+     * on the values with the same or lower excess m - 2j, so only the values with the current excess are stored,
+     * indexed by j. Each value is a mantissa and a binary exponent, because Q(2j, j) underflows for large j.
+     */
+    private double[] occupancy = new double[0];
+
+    /**
+     * The binary exponents of the occupancy mantissas.
+     */
+    private int[] occupancyExponent = new int[0];
+
+    /**
+     * The decay of each column, ((j - 1) / j)^(2j + excess - 1).
+     */
+    private double[] occupancyDecay = new double[0];
+
+    /**
+     * The number of slots and the excess of the occupancy values.
+     */
+    private int occupancySlots, occupancyExcess;
+
+    /**
+     * Starts the occupancy values of the received number of slots and advances them to the received number of tags.
+     *
+     * @param slots the number of slots (collision slots)
+     * @param tags  the number of tags in the collision slots, at least twice the slots
+     */
+    void startCollisionProbability(int slots, int tags) {
+        if (occupancy.length <= slots) {
+            occupancy = new double[slots + 1];
+            occupancyExponent = new int[slots + 1];
+            occupancyDecay = new double[slots + 1];
+        }
+
+        // Excess -1, Q(2j - 1, j) = 0 and Q(-1, 0) = 0
+        for (int j = 0; j <= slots; j++) {
+            occupancy[j] = 0;
+            occupancyExponent[j] = 0;
+            occupancyDecay[j] = j > 0 ? Math.pow((j - 1d) / j, 2 * j - 2) : 0;
+        }
+        occupancySlots = slots;
+        occupancyExcess = -1;
+        while (2 * slots + occupancyExcess < tags) {
+            advanceCollisionProbability();
+        }
+    }
+
+    /**
+     * Returns the log of the probability of the current number of tags leaving no collision slot with less than two
+     * tags.
+     *
+     * @return the log of the probability Q(2c + excess, c)
+     */
+    double logCollisionProbability() {
+        return Math.log(occupancy[occupancySlots]) + occupancyExponent[occupancySlots] * LN2;
+    }
+
+    /**
+     * Advances the occupancy values by one tag (the excess is incremented) with the recurrence Q(m + 1, j) = Q(m, j) +
+     * (m / j) * ((j - 1) / j)^(m - 1) * Q(m - 1, j - 1), the new tag joins an occupied slot or makes a new slot with
+     * two tags. Q(m - 1, j - 1) has the new excess, so the slots are updated in ascending order. All terms are
+     * positive, so there is no cancellation, and each tag costs O(c).
+     */
+    void advanceCollisionProbability() {
+        occupancyExcess++;
+
+        // Q(0, 0) = 1 and Q(e, 0) = 0 for e > 0
+        occupancy[0] = occupancyExcess == 0 ? 1 : 0;
+        for (int j = 1; j <= occupancySlots; j++) {
+            simulationResult.iterations++;
+
+            int m = 2 * j + occupancyExcess - 1;
+            double term = m / (double) j * occupancyDecay[j] * occupancy[j - 1];
+            int termExponent = occupancyExponent[j - 1];
+            double value = occupancy[j];
+            int exponent = occupancyExponent[j];
+            if (value == 0) {
+                value = term;
+                exponent = termExponent;
+            } else if (term != 0) {
+                int maxExponent = Math.max(exponent, termExponent);
+                value = Math.scalb(value, exponent - maxExponent) + Math.scalb(term, termExponent - maxExponent);
+                exponent = maxExponent;
+            }
+            if (value != 0) {
+                int normalization = Math.getExponent(value);
+                value = Math.scalb(value, -normalization);
+                exponent += normalization;
+            }
+            occupancy[j] = value;
+            occupancyExponent[j] = exponent;
+            occupancyDecay[j] *= (j - 1d) / j;
+        }
+    }
+
     /**
      * Saves the simulation result internally to count the number of iterations.
      */
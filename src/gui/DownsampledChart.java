@@ -0,0 +1,313 @@
+package gui;
+
+import javafx.collections.FXCollections;
+import javafx.scene.chart.Axis;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.XYChart;
+import javafx.scene.control.Label;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.paint.Color;
+import javafx.stage.Popup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Line chart whose series are downsampled to the chart width with the largest triangle three buckets (LTTB)
+ * algorithm, so the chart has at most one point per pixel column in each series, independent of the number of points.
+ * The complete series are kept in primitive arrays, the chart points have no nodes (symbols) and the hover label is a
+ * single popup that shows the point nearest to the mouse, found with binary search in the complete series.
+ *
+ * @author Pedro Henrique
+ */
+public class DownsampledChart {
+
+    /**
+     * The number of points of the series when the chart has no width yet.
+     */
+    private static final int DEFAULT_POINTS = 1000;
+
+    /**
+     * The max distance in pixels between the mouse and the hovered point.
+     */
+    private static final double MAX_HOVER_DISTANCE = 24;
+
+    /**
+     * The complete data of a series.
+     */
+    private static class SeriesData {
+
+        /**
+         * The chart series, contains the downsampled points.
+         */
+        private final XYChart.Series<Number, Number> series = new XYChart.Series<>();
+
+        /**
+         * The series name.
+         */
+        private final String name;
+
+        /**
+         * The x and y coordinates and the hover value of the points, only the first count are valid.
+         */
+        private double[] x = new double[64], y = new double[64], values = new double[64];
+
+        /**
+         * The number of points.
+         */
+        private int count;
+
+        /**
+         * Indicates if the chart series is outdated.
+         */
+        private boolean dirty;
+
+        private SeriesData(String name) {
+            this.name = name;
+            series.setName(name);
+        }
+    }
+
+    /**
+     * The chart.
+     */
+    private final LineChart<Number, Number> chart;
+
+    /**
+     * The series of the chart, in the chart order.
+     */
+    private final List<SeriesData> series = new ArrayList<>();
+
+    /**
+     * The hover popup and its label.
+     */
+    private final Popup hoverPopup = new Popup();
+    private final Label hoverLabel = new Label();
+
+    /**
+     * Wraps the received chart, the chart symbols and animations are disabled.
+     *
+     * @param chart the chart
+     */
+    public DownsampledChart(LineChart<Number, Number> chart) {
+        this.chart = chart;
+        chart.setCreateSymbols(false);
+        chart.setAnimated(false);
+        hoverLabel.setStyle("-fx-font-size: 10; -fx-background-color: white; -fx-border-color: lightgray; -fx-padding: 2;");
+        hoverLabel.setTextFill(Color.FIREBRICK);
+        hoverPopup.getContent().add(hoverLabel);
+        chart.setOnMouseMoved(this::hover);
+        chart.setOnMouseExited(mouseEvent -> hoverPopup.hide());
+        chart.widthProperty().addListener((observable, oldWidth, newWidth) -> {
+            for (SeriesData data : series) {
+                data.dirty = true;
+            }
+            render();
+        });
+    }
+
+    /**
+     * Returns the wrapped chart.
+     *
+     * @return the chart
+     */
+    public LineChart<Number, Number> getChart() {
+        return chart;
+    }
+
+    /**
+     * Removes all series.
+     */
+    public void clear() {
+        series.clear();
+        chart.setData(FXCollections.observableArrayList());
+        hoverPopup.hide();
+    }
+
+    /**
+     * Adds an empty series.
+     *
+     * @param name the series name
+     * @return the series index
+     */
+    public int addSeries(String name) {
+        SeriesData data = new SeriesData(name);
+        series.add(data);
+        chart.getData().add(data.series);
+        return series.size() - 1;
+    }
+
+    /**
+     * Adds a point to a series, the chart is updated only by {@link #render()}. The points of each series must be
+     * added in ascending x order.
+     *
+     * @param seriesIndex the series index
+     * @param x           the x coordinate
+     * @param y           the y coordinate
+     * @param value       the value shown when the point is hovered
+     */
+    public void add(int seriesIndex, double x, double y, double value) {
+        SeriesData data = series.get(seriesIndex);
+        if (data.count == data.x.length) {
+            data.x = Arrays.copyOf(data.x, data.count * 2);
+            data.y = Arrays.copyOf(data.y, data.count * 2);
+            data.values = Arrays.copyOf(data.values, data.count * 2);
+        }
+        data.x[data.count] = x;
+        data.y[data.count] = y;
+        data.values[data.count] = value;
+        data.count++;
+        data.dirty = true;
+    }
+
+    /**
+     * Updates the chart series that received points, each series is downsampled to the chart width.
+     */
+    public void render() {
+        int width = (int) chart.getWidth();
+        int threshold = width > 0 ? width : DEFAULT_POINTS;
+        for (SeriesData data : series) {
+            if (!data.dirty) {
+                continue;
+            }
+            int[] indices = lttb(data.x, data.y, data.count, threshold);
+            List<XYChart.Data<Number, Number>> points = new ArrayList<>(indices.length);
+            for (int index : indices) {
+                points.add(new XYChart.Data<>(data.x[index], data.y[index]));
+            }
+            data.series.getData().setAll(points);
+            data.dirty = false;
+        }
+    }
+
+    /**
+     * Shows the value of the point nearest to the mouse, in the complete series.
+     *
+     * @param mouseEvent the mouse event
+     */
+    private void hover(MouseEvent mouseEvent) {
+        Axis<Number> xAxis = chart.getXAxis();
+        Axis<Number> yAxis = chart.getYAxis();
+        double mouseX = xAxis.sceneToLocal(mouseEvent.getSceneX(), mouseEvent.getSceneY()).getX();
+        double mouseY = yAxis.sceneToLocal(mouseEvent.getSceneX(), mouseEvent.getSceneY()).getY();
+        Number mouseValue = xAxis.getValueForDisplay(mouseX);
+
+        SeriesData nearest = null;
+        int nearestIndex = 0;
+        double nearestDistance = MAX_HOVER_DISTANCE * MAX_HOVER_DISTANCE;
+        for (SeriesData data : series) {
+            if (data.count == 0 || mouseValue == null) {
+                continue;
+            }
+            int index = nearestIndex(data.x, data.count, mouseValue.doubleValue());
+            double dx = xAxis.getDisplayPosition(data.x[index]) - mouseX;
+            double dy = yAxis.getDisplayPosition(data.y[index]) - mouseY;
+            if (dx * dx + dy * dy <= nearestDistance) {
+                nearest = data;
+                nearestIndex = index;
+                nearestDistance = dx * dx + dy * dy;
+            }
+        }
+        if (nearest == null) {
+            hoverPopup.hide();
+            return;
+        }
+        hoverLabel.setText(nearest.name + "\n" + format(nearest.x[nearestIndex]) + ": " + format(nearest.values[nearestIndex]));
+        if (hoverPopup.isShowing()) {
+            hoverPopup.setX(mouseEvent.getScreenX() + 12);
+            hoverPopup.setY(mouseEvent.getScreenY() + 12);
+        } else {
+            hoverPopup.show(chart, mouseEvent.getScreenX() + 12, mouseEvent.getScreenY() + 12);
+        }
+    }
+
+    /**
+     * Returns the index of the value nearest to the key in an ascending array.
+     *
+     * @param values the ascending values
+     * @param count  the number of values, greater than 0
+     * @param key    the key
+     * @return the index of the nearest value
+     */
+    private static int nearestIndex(double[] values, int count, double key) {
+        int index = Arrays.binarySearch(values, 0, count, key);
+        if (index >= 0) {
+            return index;
+        }
+        int insertion = -index - 1;
+        if (insertion == 0) {
+            return 0;
+        }
+        if (insertion == count) {
+            return count - 1;
+        }
+        return key - values[insertion - 1] <= values[insertion] - key ? insertion - 1 : insertion;
+    }
+
+    /**
+     * Formats a value, the integers are shown without decimals.
+     *
+     * @param value the value
+     * @return the formatted value
+     */
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Float.toString((float) value);
+    }
+
+    /**
+     * Selects the points of a series with the largest triangle three buckets algorithm. The first and last points are
+     * always selected, the other points are divided in threshold - 2 buckets and in each bucket the point that forms
+     * the largest triangle with the previous selected point and the average of the next bucket is selected. If the
+     * series has at most threshold points all are selected.
+     *
+     * @param x         the x coordinates, in ascending order
+     * @param y         the y coordinates
+     * @param count     the number of points
+     * @param threshold the max number of selected points
+     * @return the indices of the selected points, in ascending order
+     */
+    public static int[] lttb(double[] x, double[] y, int count, int threshold) {
+        if (count <= threshold || threshold < 3) {
+            int[] all = new int[count];
+            Arrays.setAll(all, i -> i);
+            return all;
+        }
+        int[] selected = new int[threshold];
+        int selectedCount = 0;
+        double bucketSize = (double) (count - 2) / (threshold - 2);
+        int previous = 0;
+        selected[selectedCount++] = 0;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+
+            // The average point of the next bucket, the last bucket is the last point
+            int averageStart = Math.min((int) ((bucket + 1) * bucketSize) + 1, count - 1);
+            int averageEnd = Math.max(Math.min((int) ((bucket + 2) * bucketSize) + 1, count), averageStart + 1);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = averageStart; i < averageEnd; i++) {
+                averageX += x[i];
+                averageY += y[i];
+            }
+            averageX /= averageEnd - averageStart;
+            averageY /= averageEnd - averageStart;
+
+            // The point of the bucket with the largest triangle
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = Math.max((int) ((bucket + 1) * bucketSize) + 1, start + 1);
+            double largestArea = -1;
+            int largest = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((x[previous] - averageX) * (y[i] - y[previous]) - (x[previous] - x[i]) * (averageY - y[previous]));
+                if (area > largestArea) {
+                    largestArea = area;
+                    largest = i;
+                }
+            }
+            selected[selectedCount++] = largest;
+            previous = largest;
+        }
+        selected[selectedCount] = count - 1;
+        return selected;
+    }
+}
@@ -1,29 +1,43 @@
 package gui;
 
 import estimator.*;
+import javafx.animation.AnimationTimer;
 import javafx.collections.FXCollections;
+import javafx.concurrent.Task;
+import javafx.concurrent.Worker;
 import javafx.fxml.FXML;
 import javafx.scene.Cursor;
 import javafx.scene.Scene;
 import javafx.scene.chart.LineChart;
 import javafx.scene.chart.NumberAxis;
-import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
-import javafx.scene.layout.StackPane;
-import javafx.scene.paint.Color;
 import javafx.stage.Stage;
 import simulator.SimulationResult;
 import simulator.Simulator;
+import sweep.SweepExecutor;
+import sweep.SweepJournal;
+import sweep.SweepPoint;
+import sweep.SweepSpec;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.IntStream;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * @author Pedro Henrique
  */
 public class SimulatorScreen {
 
+    /**
+     * The simulation phases shown in the phase time chart.
+     */
+    private static final String[] PHASES = {"tag creation", "slot drawing", "classification", "estimator"};
+
     @FXML
     private ListView<Estimator> estimatorChooser;
 
@@ -39,6 +53,15 @@ public class SimulatorScreen {
     @FXML
     private TextField simulationsPerCount;
 
+    @FXML
+    private TextField precisionTarget;
+
+    @FXML
+    private TextField maxSimulationsPerCount;
+
+    @FXML
+    private TextField journalFile;
+
     //
 
     @FXML
@@ -50,6 +73,18 @@ public class SimulatorScreen {
     @FXML
     private CheckBox parallel;
 
+    @FXML
+    private Button simulateButton;
+
+    @FXML
+    private Button cancelButton;
+
+    @FXML
+    private ProgressBar progressBar;
+
+    @FXML
+    private Label progressLabel;
+
     //
 
     @FXML
@@ -66,6 +101,20 @@ public class SimulatorScreen {
 
     // Extra line charts
     private LineChart<Number, Number> iterationsPerTagCount = new LineChart<>(new NumberAxis(), new NumberAxis());
+    private LineChart<Number, Number> phaseTimePerTagCount = new LineChart<>(new NumberAxis(), new NumberAxis());
+
+    // The downsampled charts, created with the line charts
+    private final List<DownsampledChart> charts = new ArrayList<>();
+    private DownsampledChart slotsChart;
+    private DownsampledChart timeChart;
+    private DownsampledChart idleSlotsChart;
+    private DownsampledChart collisionSlotsChart;
+    private DownsampledChart iterationsChart;
+    private DownsampledChart phaseTimeChart;
+
+    // The running sweep, null if there is no sweep running
+    private SweepExecutor runningExecutor;
+    private Task<Void> runningTask;
 
     @FXML
     private void initialize() {
@@ -110,6 +159,14 @@ public class SimulatorScreen {
                 (observable, oldValue, newValue) -> simulationsPerCount.setText(newValue.matches("\\d*") ? newValue : oldValue)
         );
         simulationsPerCount.setText(Integer.toString(10));
+        precisionTarget.textProperty().addListener(
+                (observable, oldValue, newValue) -> precisionTarget.setText(newValue.matches("\\d*(\\.\\d*)?") ? newValue : oldValue)
+        );
+        precisionTarget.setText(Integer.toString(0));
+        maxSimulationsPerCount.textProperty().addListener(
+                (observable, oldValue, newValue) -> maxSimulationsPerCount.setText(newValue.matches("\\d*") ? newValue : oldValue)
+        );
+        maxSimulationsPerCount.setText(Integer.toString(1000));
 
         showInCharts.setItems(FXCollections.observableArrayList("Average", "Min", "Max"));
         showInCharts.getSelectionModel().selectFirst();
@@ -122,22 +179,23 @@ public class SimulatorScreen {
         timePerTagCount.setCursor(Cursor.CROSSHAIR);
         idleSlotsPerTagCount.setCursor(Cursor.CROSSHAIR);
         collisionSlotsPerTagCount.setCursor(Cursor.CROSSHAIR);
-        slotsPerTagCount.setCreateSymbols(false);
-        timePerTagCount.setCreateSymbols(false);
-        idleSlotsPerTagCount.setCreateSymbols(false);
-        collisionSlotsPerTagCount.setCreateSymbols(false);
+
+        slotsChart = new DownsampledChart(slotsPerTagCount);
+        timeChart = new DownsampledChart(timePerTagCount);
+        idleSlotsChart = new DownsampledChart(idleSlotsPerTagCount);
+        collisionSlotsChart = new DownsampledChart(collisionSlotsPerTagCount);
+        iterationsChart = new DownsampledChart(iterationsPerTagCount);
+        phaseTimeChart = new DownsampledChart(phaseTimePerTagCount);
+        charts.addAll(Arrays.asList(slotsChart, timeChart, idleSlotsChart, collisionSlotsChart, iterationsChart, phaseTimeChart));
     }
 
     @FXML
     private void simulateOnAction() {
         logArea.setText("");
 
-        slotsPerTagCount.setData(FXCollections.observableArrayList());
-        timePerTagCount.setData(FXCollections.observableArrayList());
-        idleSlotsPerTagCount.setData(FXCollections.observableArrayList());
-        collisionSlotsPerTagCount.setData(FXCollections.observableArrayList());
-
-        iterationsPerTagCount.setData(FXCollections.observableArrayList());
+        for (DownsampledChart chart : charts) {
+            chart.clear();
+        }
 
         logArea.appendText("Cleaning chart data\n");
 
@@ -171,132 +229,209 @@ public class SimulatorScreen {
             logArea.appendText("Simulations per count format error\n");
             logArea.appendText("Setting default value: " + simulationsPerCount + "\n");
         }
+        double precisionTarget = 0;
+        try {
+            precisionTarget = Double.parseDouble(this.precisionTarget.getText());
+        } catch (NumberFormatException ignored) {
+            logArea.appendText("Precision target format error\n");
+            logArea.appendText("Setting default value: " + precisionTarget + "\n");
+        }
+        int maxSimulationsPerCount = 1000;
+        try {
+            maxSimulationsPerCount = Integer.parseInt(this.maxSimulationsPerCount.getText());
+        } catch (NumberFormatException ignored) {
+            logArea.appendText("Max simulations per count format error\n");
+            logArea.appendText("Setting default value: " + maxSimulationsPerCount + "\n");
+        }
 
-        float startAllSimulationsTime = System.nanoTime();
-        for (Estimator estimator : estimatorsToSimulate) {
-            logArea.appendText("Simulating estimator " + estimator.getName() + "\n");
-            long startSimulationTime = System.nanoTime();
-            plotSimulationData(calculateSimulationResults(estimator, initialTagCount, maxTagCount, tagCountIncrement, simulationsPerCount));
-            long endSimulationTime = System.nanoTime();
-            logArea.appendText("Total time: " + ((endSimulationTime - startSimulationTime) / 1000000.0) + "(ms)\n\n");
+        SweepSpec spec = new SweepSpec();
+        spec.estimators.addAll(estimatorsToSimulate);
+        spec.initialTagCount = initialTagCount;
+        spec.maxTagCount = maxTagCount;
+        spec.tagCountIncrement = Math.max(tagCountIncrement, 1);
+        spec.simulationsPerCount = Math.max(simulationsPerCount, 1);
+        spec.targetPrecision = precisionTarget / 100;
+        spec.maxSimulationsPerCount = Math.max(maxSimulationsPerCount, spec.simulationsPerCount);
+        spec.threads = parallel.isSelected() ? Runtime.getRuntime().availableProcessors() : 1;
+
+        // The journal restores the points of a previous run of the same sweep, and its seed
+        SweepJournal journal = null;
+        if (!journalFile.getText().trim().isEmpty()) {
+            try {
+                journal = new SweepJournal(Paths.get(journalFile.getText().trim()), spec);
+            } catch (IOException | RuntimeException e) {
+                logArea.appendText("Cannot open the journal: " + e.getMessage() + "\n");
+                return;
+            }
+            logArea.appendText("Journal points restored: " + journal.getRestoredPoints() + "\n");
         }
-        float endAllSimulationsTime = System.nanoTime();
-        logArea.appendText("Total time: " + ((endAllSimulationsTime - startAllSimulationsTime) / 1000000.0) + "(ms)\n");
 
-        Stage iterationsChartWindow = new Stage();
-        iterationsChartWindow.setScene(new Scene(iterationsPerTagCount));
-        iterationsChartWindow.show();
-    }
+        logArea.appendText("Simulating " + spec.estimators.size() + " estimators with " + spec.threads + " threads, seed " + spec.seed + "\n");
 
-    private List<SimulationResult> calculateSimulationResults(Estimator estimator, int initialTagCount, int maxTagCount, int tagCountIncrement, int simulationCount) {
-        List<SimulationResult> relevantSimulationResults = new ArrayList<>();
+        // The series of all estimators are created before the sweep, the points are appended as they complete
         String relevantDataLabel = showInCharts.getSelectionModel().getSelectedItem();
-        if (!parallel.isSelected()) {
-            for (int tagCount = initialTagCount; tagCount <= maxTagCount; tagCount += tagCountIncrement) {
-                System.out.println("Simulating " + estimator.toString() + " tag count: " + tagCount);
-                relevantSimulationResults.add(calculateRelevantData(calculateSimulationResultsPerTagCount(estimator, tagCount, simulationCount), relevantDataLabel));
-            }
-        } else {
-            IntStream.iterate(initialTagCount, tagCount -> tagCount + tagCountIncrement)
-                    .limit((maxTagCount - initialTagCount) / tagCountIncrement + 1)
-                    .parallel()
-                    .peek(tagCount -> System.out.println("Simulating " + estimator.toString() + " tag count: " + tagCount))
-                    .forEach(tagCount ->
-                            relevantSimulationResults.add(calculateRelevantData(calculateSimulationResultsPerTagCount(estimator, tagCount, simulationCount), relevantDataLabel)));
+        List<EstimatorSeries> estimatorSeries = new ArrayList<>();
+        for (Estimator estimator : spec.estimators) {
+            estimatorSeries.add(new EstimatorSeries(estimator.getName()));
         }
-        return relevantSimulationResults;
-    }
+        int tagCounts = spec.tagCounts();
+
+        // The sweep runs in a background task, the completed points are queued and plotted once per pulse. The task is
+        // never cancelled, the executor is, so the task finishes only after the workers stop and the journal is closed
+        SweepExecutor executor = new SweepExecutor(spec, null, journal);
+        SweepJournal sweepJournal = journal;
+        Queue<SweepPoint> completedPoints = new ConcurrentLinkedQueue<>();
+        Task<Void> task = new Task<Void>() {
+            @Override
+            protected Void call() throws IOException {
+                try {
+                    executor.execute((index, point) -> completedPoints.add(point));
+                } catch (CancellationException ignored) {
+                    // The completed points were published, the cancellation is logged when the task finishes
+                } finally {
+                    if (sweepJournal != null) {
+                        sweepJournal.close();
+                    }
+                }
+                return null;
+            }
+        };
+        long startAllSimulationsTime = System.nanoTime();
+        int[] plottedPoints = {0};
+        AnimationTimer plotter = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                for (SweepPoint point = completedPoints.poll(); point != null; point = completedPoints.poll()) {
+                    if (spec.isAdaptive()) {
+                        logArea.appendText(point.estimator + " tag count " + point.tagCount + ": " + point.simulations + " simulations\n");
+                    }
+                    estimatorSeries.get(plottedPoints[0] / tagCounts).add(calculateRelevantData(point, relevantDataLabel));
+                    plottedPoints[0]++;
+                }
+                for (DownsampledChart chart : charts) {
+                    chart.render();
+                }
+                updateProgress(executor, System.nanoTime() - startAllSimulationsTime);
+            }
+        };
 
-    private List<SimulationResult> calculateSimulationResultsPerTagCount(Estimator estimator, int tagCount, int simulationCount) {
-        List<SimulationResult> results = new ArrayList<>();
-        if (!parallel.isSelected()) {
-            for (int i = 0; i < simulationCount; i++) {
-                results.add(Simulator.simulate(estimator.copy(), tagCount));
+        task.stateProperty().addListener((observable, oldState, state) -> {
+            if (state != Worker.State.SUCCEEDED && state != Worker.State.FAILED) {
+                return;
+            }
+            plotter.handle(System.nanoTime());
+            plotter.stop();
+            long endAllSimulationsTime = System.nanoTime();
+            if (state == Worker.State.FAILED) {
+                logArea.appendText("Simulation failed: " + task.getException() + "\n");
+            } else if (executor.isCancelled()) {
+                logArea.appendText("Simulation cancelled, " + plottedPoints[0] + " points completed\n");
+            }
+            logArea.appendText("Total time: " + ((endAllSimulationsTime - startAllSimulationsTime) / 1000000.0) + "(ms)\n");
+            runningExecutor = null;
+            runningTask = null;
+            simulateButton.setDisable(false);
+            cancelButton.setDisable(true);
+
+            Stage iterationsChartWindow = new Stage();
+            iterationsChartWindow.setScene(new Scene(iterationsPerTagCount));
+            iterationsChartWindow.show();
+
+            // The phase times are measured only if enabled, see Simulator.PHASE_TIMING
+            if (Simulator.PHASE_TIMING) {
+                Stage phaseTimeChartWindow = new Stage();
+                phaseTimeChartWindow.setTitle("Phase time (log ms)");
+                phaseTimeChartWindow.setScene(new Scene(phaseTimePerTagCount));
+                phaseTimeChartWindow.show();
             }
-        } else {
-            IntStream.range(0, simulationCount).parallel()
-                    .forEach(simulation -> results.add(Simulator.simulate(estimator.copy(), tagCount)));
+        });
+
+        runningExecutor = executor;
+        runningTask = task;
+        simulateButton.setDisable(true);
+        cancelButton.setDisable(false);
+        progressBar.setProgress(0);
+        progressLabel.setText("");
+        plotter.start();
+        Thread sweepThread = new Thread(task, "sweep");
+        sweepThread.setDaemon(true);
+        sweepThread.start();
+    }
+
+    @FXML
+    private void cancelOnAction() {
+        if (runningTask != null) {
+            runningExecutor.cancel();
+            cancelButton.setDisable(true);
+            logArea.appendText("Cancelling, the running simulations are finished\n");
         }
-        return results;
     }
 
-    private SimulationResult calculateRelevantData(List<SimulationResult> simulationResults, String relevantData) {
+    /**
+     * Shows the sweep progress, the throughput and the estimated remaining time.
+     *
+     * @param executor    the sweep executor
+     * @param elapsedTime the elapsed time in nanoseconds
+     */
+    private void updateProgress(SweepExecutor executor, long elapsedTime) {
+        double progress = executor.getProgress();
+        double elapsedSeconds = elapsedTime / 1e9;
+        String remaining = progress > 0 ? String.format("%.0f s", elapsedSeconds * (1 - progress) / progress) : "-";
+        progressBar.setProgress(progress);
+        progressLabel.setText(String.format("%.0f%%, %.0f sim/s, ETA %s", progress * 100, executor.getSimulations() / Math.max(elapsedSeconds, 1e-3), remaining));
+    }
+
+    private SimulationResult calculateRelevantData(SweepPoint point, String relevantData) {
         switch (relevantData) {
             case "Average":
-                return SimulationResult.average(simulationResults);
+                return point.average;
             case "Min":
-                return SimulationResult.min(simulationResults);
+                return point.min;
             case "Max":
-                return SimulationResult.max(simulationResults);
+                return point.max;
         }
         return null;
     }
 
-    private void plotSimulationData(List<SimulationResult> simulationResults) {
-        String estimatorName = simulationResults.get(0).estimator.getName();
-        XYChart.Series<Number, Number> slotsPerTagCountSeries = new XYChart.Series<>();
-        XYChart.Series<Number, Number> timePerTagCountSeries = new XYChart.Series<>();
-        XYChart.Series<Number, Number> idleSlotsPerTagCountSeries = new XYChart.Series<>();
-        XYChart.Series<Number, Number> collisionSlotsPerTagCountSeries = new XYChart.Series<>();
-        slotsPerTagCountSeries.setName(estimatorName);
-        timePerTagCountSeries.setName(estimatorName);
-        idleSlotsPerTagCountSeries.setName(estimatorName);
-        collisionSlotsPerTagCountSeries.setName(estimatorName);
-        slotsPerTagCount.getData().add(slotsPerTagCountSeries);
-        timePerTagCount.getData().add(timePerTagCountSeries);
-        idleSlotsPerTagCount.getData().add(idleSlotsPerTagCountSeries);
-        collisionSlotsPerTagCount.getData().add(collisionSlotsPerTagCountSeries);
-
-        XYChart.Series<Number, Number> iterationsPerTagCountSeries = new XYChart.Series<>();
-        iterationsPerTagCountSeries.setName(estimatorName);
-        iterationsPerTagCount.getData().add(iterationsPerTagCountSeries);
-
-        int seriesIndex = slotsPerTagCount.getData().size() - 1;
-
-        for (SimulationResult simulationResult : simulationResults) {
-            XYChart.Data<Number, Number> slotsPerTagCountSeriesData = new XYChart.Data<>(simulationResult.tagCount, simulationResult.createdSlots);
-            slotsPerTagCountSeriesData.setNode(new ChartDataNode(simulationResult.createdSlots, seriesIndex));
-            slotsPerTagCountSeries.getData().add(slotsPerTagCountSeriesData);
-
-            XYChart.Data<Number, Number> timePerTagCountSeriesData = new XYChart.Data<>(simulationResult.tagCount, Math.log(simulationResult.executionTime + 1));
-            timePerTagCountSeriesData.setNode(new ChartDataNode(simulationResult.executionTime, seriesIndex));
-            timePerTagCountSeries.getData().add(timePerTagCountSeriesData);
-
-            XYChart.Data<Number, Number> idleSlotsPerTagCountSeriesData = new XYChart.Data<>(simulationResult.tagCount, simulationResult.idleSlots);
-            idleSlotsPerTagCountSeriesData.setNode(new ChartDataNode(simulationResult.idleSlots, seriesIndex));
-            idleSlotsPerTagCountSeries.getData().add(idleSlotsPerTagCountSeriesData);
-
-            XYChart.Data<Number, Number> collisionSlotsPerTagCountSeriesData = new XYChart.Data<>(simulationResult.tagCount, simulationResult.collisionSlots);
-            collisionSlotsPerTagCountSeriesData.setNode(new ChartDataNode(simulationResult.collisionSlots, seriesIndex));
-            collisionSlotsPerTagCountSeries.getData().add(collisionSlotsPerTagCountSeriesData);
-
-            XYChart.Data<Number, Number> iterationsPerTagCountSeriesData = new XYChart.Data<>(simulationResult.tagCount, Math.log(simulationResult.iterations + 1));
-            iterationsPerTagCountSeriesData.setNode(new ChartDataNode(simulationResult.iterations, seriesIndex));
-            iterationsPerTagCountSeries.getData().add(iterationsPerTagCountSeriesData);
+    /**
+     * The chart series of an estimator, the points are appended while the sweep runs.
+     */
+    private class EstimatorSeries {
+
+        private final int slotsSeries;
+        private final int timeSeries;
+        private final int idleSlotsSeries;
+        private final int collisionSlotsSeries;
+        private final int iterationsSeries;
+        private final int[] phaseTimeSeries = new int[PHASES.length];
+
+        private EstimatorSeries(String estimatorName) {
+            slotsSeries = slotsChart.addSeries(estimatorName);
+            timeSeries = timeChart.addSeries(estimatorName);
+            idleSlotsSeries = idleSlotsChart.addSeries(estimatorName);
+            collisionSlotsSeries = collisionSlotsChart.addSeries(estimatorName);
+            iterationsSeries = iterationsChart.addSeries(estimatorName);
+            if (Simulator.PHASE_TIMING) {
+                for (int phase = 0; phase < PHASES.length; phase++) {
+                    phaseTimeSeries[phase] = phaseTimeChart.addSeries(estimatorName + " " + PHASES[phase]);
+                }
+            }
         }
-    }
-
-    private class ChartDataNode extends StackPane {
-
-        private ChartDataNode(Number value, int defaultColorIndex) {
-            setPrefSize(8, 8);
 
-            Label hoverLabel = new Label(value + "");
-            hoverLabel.getStyleClass().addAll("default-color" + defaultColorIndex, "chart-line-symbol", "chart-series-line");
-            hoverLabel.setStyle("-fx-font-size: 10;");
-            hoverLabel.setTextFill(Color.FIREBRICK);
-            hoverLabel.setMinSize(Label.USE_PREF_SIZE, Label.USE_PREF_SIZE);
-
-            setOnMouseEntered(mouseEvent -> {
-                getChildren().setAll(hoverLabel);
-                setCursor(Cursor.NONE);
-                toFront();
-            });
-
-            setOnMouseExited(mouseEvent -> {
-                getChildren().clear();
-                setCursor(Cursor.CROSSHAIR);
-            });
+        private void add(SimulationResult simulationResult) {
+            int tagCount = simulationResult.tagCount;
+            slotsChart.add(slotsSeries, tagCount, simulationResult.createdSlots, simulationResult.createdSlots);
+            timeChart.add(timeSeries, tagCount, Math.log(simulationResult.executionTime + 1), simulationResult.executionTime);
+            idleSlotsChart.add(idleSlotsSeries, tagCount, simulationResult.idleSlots, simulationResult.idleSlots);
+            collisionSlotsChart.add(collisionSlotsSeries, tagCount, simulationResult.collisionSlots, simulationResult.collisionSlots);
+            iterationsChart.add(iterationsSeries, tagCount, Math.log(simulationResult.iterations + 1), simulationResult.iterations);
+
+            if (Simulator.PHASE_TIMING) {
+                float[] phaseTimes = {simulationResult.tagCreationTime, simulationResult.slotDrawingTime, simulationResult.classificationTime, simulationResult.estimatorTime};
+                for (int phase = 0; phase < PHASES.length; phase++) {
+                    phaseTimeChart.add(phaseTimeSeries[phase], tagCount, Math.log(phaseTimes[phase] + 1), phaseTimes[phase]);
+                }
+            }
         }
     }
 }
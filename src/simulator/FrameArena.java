@@ -0,0 +1,124 @@
+package simulator;
+
+import java.util.Arrays;
+
+/**
+ * Stores the buffers used by the simulator, each thread has its own arena. The buffers grow only when a greater frame
+ * or tag population is needed and are cleared in place, so after the warm-up the simulations do not allocate memory.
+ *
+ * @author Pedro Henrique
+ */
+public class FrameArena {
+
+    /**
+     * The arena of each thread.
+     */
+    private static final ThreadLocal<FrameArena> arenas = ThreadLocal.withInitial(FrameArena::new);
+
+    /**
+     * The number of tags that responded in each slot of the frame.
+     */
+    private int[] slotTagCounts = new int[0];
+
+    /**
+     * The last tag that responded in each slot of the frame.
+     */
+    private int[] slotTags = new int[0];
+
+    /**
+     * The reusable tag population.
+     */
+    private final TagPopulation population = new TagPopulation(0);
+
+    /**
+     * The populations of lockstep simulations.
+     */
+    private TagPopulation[] populations = new TagPopulation[0];
+
+    /**
+     * Prevents instantiation outside {@link #get()}.
+     */
+    private FrameArena() {
+    }
+
+    /**
+     * Returns the arena of the current thread.
+     *
+     * @return the current thread arena
+     */
+    public static FrameArena get() {
+        return arenas.get();
+    }
+
+    /**
+     * Returns the slot tag counts buffer with at least the received frame size, the first frameSize positions are
+     * cleared.
+     *
+     * @param frameSize the size of the frame
+     * @return the slot tag counts buffer
+     */
+    public int[] slotTagCounts(int frameSize) {
+        if (slotTagCounts.length < frameSize) {
+            slotTagCounts = new int[grow(slotTagCounts.length, frameSize)];
+        } else {
+            Arrays.fill(slotTagCounts, 0, frameSize, 0);
+        }
+        return slotTagCounts;
+    }
+
+    /**
+     * Returns the slot tags buffer with at least the received frame size, the buffer is not cleared.
+     *
+     * @param frameSize the size of the frame
+     * @return the slot tags buffer
+     */
+    public int[] slotTags(int frameSize) {
+        if (slotTags.length < frameSize) {
+            slotTags = new int[grow(slotTags.length, frameSize)];
+        }
+        return slotTags;
+    }
+
+    /**
+     * Returns the arena tag population resized to the received tag count, all tags are silenced.
+     *
+     * @param tagCount the number of tags
+     * @return the tag population
+     */
+    public TagPopulation population(int tagCount) {
+        population.resize(tagCount);
+        return population;
+    }
+
+    /**
+     * Returns the populations of lockstep simulations, resized to the received tag count.
+     *
+     * @param count    the number of populations
+     * @param tagCount the number of tags of each population
+     * @return the populations, only the first count are valid
+     */
+    public TagPopulation[] populations(int count, int tagCount) {
+        if (populations.length < count) {
+            TagPopulation[] grown = Arrays.copyOf(populations, count);
+            for (int i = populations.length; i < count; i++) {
+                grown[i] = new TagPopulation(0);
+            }
+            populations = grown;
+        }
+        for (int i = 0; i < count; i++) {
+            populations[i].resize(tagCount);
+        }
+        return populations;
+    }
+
+    /**
+     * Calculates the new capacity of a buffer, at least doubling it to amortize the reallocations.
+     *
+     * @param capacity the current capacity
+     * @param required the required capacity
+     * @return the new capacity
+     */
+    private static int grow(int capacity, int required) {
+        return (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, capacity * 2L));
+    }
+}
@@ -0,0 +1,40 @@
+package simulator;
+
+import estimator.Estimator;
+
+/**
+ * Receives the frames of simulations, see {@link Simulator#simulate(Estimator, int, long, FrameTrace)}. The frames are
+ * received in the hot loop of the simulator, so the implementations should not allocate memory in
+ * {@link #frame(int, int, int, int)}. A trace receives one simulation at a time.
+ *
+ * @author Pedro Henrique
+ */
+public interface FrameTrace {
+
+    /**
+     * Called before the first frame of a simulation.
+     *
+     * @param estimator the simulated estimator
+     * @param tagCount  the number of tags
+     * @param seed      the simulation seed
+     */
+    void simulationStarted(Estimator estimator, int tagCount, long seed);
+
+    /**
+     * Called after each frame. In {@link Estimator.Type#COMPLEX_DFSA} estimators the frame ends when its size changes,
+     * so the frame slots may not be all used.
+     *
+     * @param frameSize the frame size
+     * @param idle      number of idle slots
+     * @param success   number of success slots
+     * @param collision number of collision slots
+     */
+    void frame(int frameSize, int idle, int success, int collision);
+
+    /**
+     * Called after the last frame of a simulation.
+     *
+     * @param simulationResult the simulation result
+     */
+    void simulationFinished(SimulationResult simulationResult);
+}
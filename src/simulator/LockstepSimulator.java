@@ -0,0 +1,164 @@
+package simulator;
+
+import estimator.Estimator;
+
+/**
+ * Simulates many replications of a {@link Estimator.Type#SIMPLE_DFSA} estimator together, frame by frame. In each step
+ * every active replication draws and classifies its frame, then the next frame sizes of all active replications are
+ * calculated with a single {@link Estimator#nextFrameSizes(int, int[], int[], int[], int[], SimulationResult[])} call.
+ * The replications that finish are retired and the active ones are compacted, so each step only visits the
+ * replications still running.
+ * <p>
+ * Each replication has its own tag population and seed, so it produces the same result of {@link Simulator} with the
+ * same estimator and seed (except the execution time), the estimators that keep state between frames, like the warm
+ * started {@link estimator.EomLee}, keep it per replication. The execution and phase times of each replication are
+ * the lockstep times divided by the number of replications.
+ * <p>
+ * The {@link Estimator.Type#COMPLEX_DFSA} estimators change the frame size inside the frame, so their replications
+ * can not step together, each one is simulated by {@link Simulator} with a copy of the estimator.
+ *
+ * @author Pedro Henrique
+ */
+public class LockstepSimulator {
+
+    /**
+     * Prevents instantiation.
+     */
+    private LockstepSimulator() {
+    }
+
+    /**
+     * Simulates a replication of the estimator for each seed, all with the received tag count.
+     *
+     * @param estimator the estimator to test
+     * @param tagCount  the number of tags
+     * @param seeds     the seed of the tags prng of each replication
+     * @return the {@link SimulationResult} of each replication, in the seeds order
+     */
+    public static SimulationResult[] simulate(Estimator estimator, int tagCount, long[] seeds) {
+        if (estimator.getType() != Estimator.Type.SIMPLE_DFSA) {
+            SimulationResult[] simulationResults = new SimulationResult[seeds.length];
+            for (int r = 0; r < seeds.length; r++) {
+                simulationResults[r] = Simulator.simulate(estimator.copy(), tagCount, seeds[r]);
+            }
+            return simulationResults;
+        }
+
+        // Starting the simulator execution time, the phase times are accumulated in nanoseconds
+        long executionStartTime = System.nanoTime();
+        long phaseStartTime;
+        long slotDrawingTime = 0;
+        long classificationTime = 0;
+        long estimatorTime = 0;
+
+        // Creating the tags of each replication, the populations are reused from the thread arena
+        int replications = seeds.length;
+        FrameArena arena = FrameArena.get();
+        TagPopulation[] populations = arena.populations(replications, tagCount);
+        SimulationResult[] simulationResults = new SimulationResult[replications];
+
+        // The state of the active replications, compacted when a replication finishes
+        int[] active = new int[replications];
+        SimulationResult[] activeResults = new SimulationResult[replications];
+        int[] frameSizes = new int[replications];
+        int[] idle = new int[replications];
+        int[] success = new int[replications];
+        int[] collision = new int[replications];
+        int[] nextFrameSizes = new int[replications];
+
+        int initialFrameSize = estimator.initialFrameSize();
+        for (int r = 0; r < replications; r++) {
+            populations[r].setSeed(seeds[r]);
+            populations[r].readerStarting();
+            SimulationResult simulationResult = new SimulationResult();
+            simulationResult.estimator = estimator;
+            simulationResult.tagCount = tagCount;
+            simulationResults[r] = simulationResult;
+            active[r] = r;
+            activeResults[r] = simulationResult;
+            frameSizes[r] = initialFrameSize;
+        }
+        long tagCreationTime = Simulator.PHASE_TIMING ? System.nanoTime() - executionStartTime : 0;
+
+        int activeCount = replications;
+        while (activeCount > 0) { // Frame loop
+            for (int k = 0; k < activeCount; k++) {
+                TagPopulation population = populations[active[k]];
+                SimulationResult simulationResult = activeResults[k];
+                int frameSize = frameSizes[k];
+                simulationResult.createdFrames++;
+                simulationResult.createdSlots += frameSize;
+
+                // The frame buffers are shared by the replications, they are cleared when requested
+                int[] frame = arena.slotTagCounts(frameSize);
+                int[] frameTags = arena.slotTags(frameSize);
+                phaseStartTime = Simulator.PHASE_TIMING ? System.nanoTime() : 0;
+                Simulator.drawFrame(population, frameSize, frame, frameTags);
+                if (Simulator.PHASE_TIMING) {
+                    long now = System.nanoTime();
+                    slotDrawingTime += now - phaseStartTime;
+                    phaseStartTime = now;
+                }
+
+                // Counting idle, success and collision slots
+                int frameIdleSlots = 0;
+                int frameSuccessSlots = 0;
+                int frameCollisionSlots = 0;
+                for (int i = 0; i < frameSize; i++) {
+                    switch (frame[i]) {
+                        case 0:
+                            frameIdleSlots++;
+                            break;
+                        case 1:
+                            frameSuccessSlots++;
+                            population.communicationSuccessful(frameTags[i]); // Silences the tag if success
+                            break;
+                        default:
+                            frameCollisionSlots++;
+                            break;
+                    }
+                }
+                simulationResult.idleSlots += frameIdleSlots;
+                simulationResult.successSlots += frameSuccessSlots;
+                simulationResult.collisionSlots += frameCollisionSlots;
+                idle[k] = frameIdleSlots;
+                success[k] = frameSuccessSlots;
+                collision[k] = frameCollisionSlots;
+                if (Simulator.PHASE_TIMING) {
+                    classificationTime += System.nanoTime() - phaseStartTime;
+                }
+            }
+
+            // Calculating the next frame sizes of all active replications
+            phaseStartTime = Simulator.PHASE_TIMING ? System.nanoTime() : 0;
+            estimator.nextFrameSizes(activeCount, idle, success, collision, nextFrameSizes, activeResults);
+            if (Simulator.PHASE_TIMING) {
+                estimatorTime += System.nanoTime() - phaseStartTime;
+            }
+
+            // Retiring the replications whose next frame size is 0
+            int remaining = 0;
+            for (int k = 0; k < activeCount; k++) {
+                if (nextFrameSizes[k] != 0) {
+                    active[remaining] = active[k];
+                    activeResults[remaining] = activeResults[k];
+                    frameSizes[remaining] = nextFrameSizes[k];
+                    remaining++;
+                }
+            }
+            activeCount = remaining;
+        }
+
+        // Calculates the execution end time, shared by the replications
+        long executionEndTime = System.nanoTime();
+        float divisor = 1e6f * Math.max(replications, 1);
+        for (SimulationResult simulationResult : simulationResults) {
+            simulationResult.executionTime = (executionEndTime - executionStartTime) / divisor;
+            simulationResult.tagCreationTime = tagCreationTime / divisor;
+            simulationResult.slotDrawingTime = slotDrawingTime / divisor;
+            simulationResult.classificationTime = classificationTime / divisor;
+            simulationResult.estimatorTime = estimatorTime / divisor;
+        }
+        return simulationResults;
+    }
+}
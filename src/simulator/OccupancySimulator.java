@@ -0,0 +1,369 @@
+package simulator;
+
+import estimator.Estimator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Simulator that does not create tags or frames. In {@link Estimator.Type#SIMPLE_DFSA} estimators only the number of
+ * idle, success and collision slots of each frame is used, so these counts are sampled directly from the occupancy
+ * distribution of the remaining tags (balls) in the frame slots (bins).
+ * <p>
+ * The slots are split recursively in halves with binomial tag counts, until a part has at most one tag or one slot, so
+ * the cost of a frame is O(min(tags, slots)). When the tags and the slots of a part are both at least
+ * {@link #APPROXIMATION_THRESHOLD} its counts are sampled from the normal approximation in constant time, unless their
+ * standard deviations are below {@link #APPROXIMATION_MIN_STDDEV} (frames with many more tags than slots). Below the
+ * threshold the cost grows linearly, above it the cost of the usual frames does not depend on the tag count.
+ *
+ * @author Pedro Henrique
+ */
+public class OccupancySimulator {
+
+    /**
+     * When the number of tags and slots are both greater or equal to this value, the slot counts are sampled from the
+     * normal approximation of the occupancy distribution.
+     */
+    private static final int APPROXIMATION_THRESHOLD = 1 << 14;
+
+    /**
+     * The min standard deviation of the idle and success counts to use the normal approximation.
+     */
+    private static final double APPROXIMATION_MIN_STDDEV = 4;
+
+    /**
+     * Prevents instantiation.
+     */
+    private OccupancySimulator() {
+    }
+
+    /**
+     * Simulates an estimator with the received tag count and a random seed, see
+     * {@link #simulate(Estimator, int, long)}.
+     *
+     * @param estimator the estimator to test
+     * @param tagCount  the number of tags
+     * @return a {@link SimulationResult} with the simulation data
+     */
+    public static SimulationResult simulate(Estimator estimator, int tagCount) {
+        return simulate(estimator, tagCount, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Simulates an estimator with the received tag count, the result contains the same information of
+     * {@link Simulator#simulate(Estimator, int, long)}. The {@link Estimator.Type#COMPLEX_DFSA} estimators need the tags
+     * slot counters, so they are simulated by {@link Simulator#simulate(Estimator, int, long)}.
+     *
+     * @param estimator the estimator to test
+     * @param tagCount  the number of tags
+     * @param seed      the seed of the sampler prng
+     * @return a {@link SimulationResult} with the simulation data
+     */
+    public static SimulationResult simulate(Estimator estimator, int tagCount, long seed) {
+        return simulate(estimator, tagCount, seed, null);
+    }
+
+    /**
+     * Simulates an estimator with the received tag count and seed, the frames are sent to the received trace, see
+     * {@link #simulate(Estimator, int, long)}.
+     *
+     * @param estimator the estimator to test
+     * @param tagCount  the number of tags
+     * @param seed      the seed of the sampler prng
+     * @param trace     the trace that receives the frames, can be null
+     * @return a {@link SimulationResult} with the simulation data
+     */
+    public static SimulationResult simulate(Estimator estimator, int tagCount, long seed, FrameTrace trace) {
+        if (estimator.getType() != Estimator.Type.SIMPLE_DFSA) {
+            return Simulator.simulate(estimator, tagCount, seed, trace);
+        }
+
+        // Starting the simulator execution time, there are no tags and the slots are not classified, the sampling is
+        // the slot drawing phase
+        long executionStartTime = System.nanoTime();
+        long phaseStartTime;
+        long slotDrawingTime = 0;
+        long estimatorTime = 0;
+
+        OccupancySampler sampler = new OccupancySampler(new RandomStream(seed));
+
+        // Creating the simulation result, it will save the execution information
+        SimulationResult simulationResult = new SimulationResult();
+        simulationResult.estimator = estimator;
+        estimator.setSimulationResult(simulationResult);
+        simulationResult.tagCount = tagCount;
+        if (trace != null) {
+            trace.simulationStarted(estimator, tagCount, seed);
+        }
+
+        // Setting the first frame size
+        int currentFrameSize = estimator.initialFrameSize();
+        int remainingTags = tagCount;
+
+        while (currentFrameSize != 0) { // Frame loop, stops if the frame size is 0
+            simulationResult.createdFrames++;
+            simulationResult.createdSlots += currentFrameSize;
+
+            // Sampling idle, success and collision slots
+            phaseStartTime = Simulator.PHASE_TIMING ? System.nanoTime() : 0;
+            sampler.sample(remainingTags, currentFrameSize);
+            if (Simulator.PHASE_TIMING) {
+                long now = System.nanoTime();
+                slotDrawingTime += now - phaseStartTime;
+                phaseStartTime = now;
+            }
+            simulationResult.idleSlots += sampler.idle;
+            simulationResult.successSlots += sampler.success;
+            simulationResult.collisionSlots += sampler.collision;
+            remainingTags -= sampler.success;
+            if (trace != null) {
+                trace.frame(currentFrameSize, sampler.idle, sampler.success, sampler.collision);
+            }
+
+            // Calculating next frame size
+            currentFrameSize = estimator.nextFrameSize(sampler.idle, sampler.success, sampler.collision);
+            if (Simulator.PHASE_TIMING) {
+                estimatorTime += System.nanoTime() - phaseStartTime;
+            }
+        }
+
+        // Calculates the execution end time
+        long executionEndTime = System.nanoTime();
+        simulationResult.executionTime = (executionEndTime - executionStartTime) / 1e6f;
+        simulationResult.slotDrawingTime = slotDrawingTime / 1e6f;
+        simulationResult.estimatorTime = estimatorTime / 1e6f;
+        if (trace != null) {
+            trace.simulationFinished(simulationResult);
+        }
+        return simulationResult;
+    }
+
+    /**
+     * Samples the number of idle, success and collision slots of a frame.
+     */
+    private static class OccupancySampler {
+
+        /**
+         * The sampler prng.
+         */
+        private final RandomStream prng;
+
+        /**
+         * The counts of the last sampled frame.
+         */
+        private int idle, success, collision;
+
+        /**
+         * Initializes the sampler with the received prng.
+         *
+         * @param prng the sampler prng
+         */
+        private OccupancySampler(RandomStream prng) {
+            this.prng = prng;
+        }
+
+        /**
+         * Samples the slot counts of a frame with the received tags and slots, the result is saved in the idle,
+         * success and collision fields.
+         *
+         * @param tags  the number of tags
+         * @param slots the number of slots
+         */
+        private void sample(int tags, int slots) {
+            idle = 0;
+            success = 0;
+            collision = 0;
+            occupy(tags, slots);
+        }
+
+        /**
+         * Throws the tags in the slots, the slots are split in two halves and the number of tags in the first half
+         * is binomial, each half is solved recursively until the number of tags or slots is trivial or large enough
+         * to use the normal approximation.
+         *
+         * @param tags  the number of tags
+         * @param slots the number of slots
+         */
+        private void occupy(int tags, int slots) {
+            if (tags == 0) {
+                idle += slots;
+            } else if (slots == 1) {
+                if (tags == 1) {
+                    success++;
+                } else {
+                    collision++;
+                }
+            } else if (tags == 1) {
+                success++;
+                idle += slots - 1;
+            } else if (tags < APPROXIMATION_THRESHOLD || slots < APPROXIMATION_THRESHOLD || !approximate(tags, slots)) {
+                int half = slots >>> 1;
+                int tagsInHalf = binomial(tags, (double) half / slots);
+                occupy(tagsInHalf, half);
+                occupy(tags - tagsInHalf, slots - half);
+            }
+        }
+
+        /**
+         * Samples the idle and success counts from the bivariate normal approximation of the occupancy distribution,
+         * with exact means, variances and covariance. The counts are adjusted to keep them consistent, a remaining
+         * tag always results in a collision. If the counts variance is too small for the approximation nothing is
+         * sampled.
+         *
+         * @param tags  the number of tags
+         * @param slots the number of slots
+         * @return true if the counts were sampled
+         */
+        private boolean approximate(int tags, int slots) {
+            double n = tags;
+            double m = slots;
+
+            // Probabilities of one and two given slots being empty
+            double q1 = Math.exp(n * Math.log1p(-1 / m));
+            double q2 = Math.exp(n * Math.log1p(-2 / m));
+            double q2n1 = q2 / (1 - 2 / m);
+            double q2n2 = q2n1 / (1 - 2 / m);
+
+            double meanI = m * q1;
+            double meanS = n * q1 / (1 - 1 / m);
+            double varI = meanI + m * (m - 1) * q2 - meanI * meanI;
+            double varS = (m - 1) / m * n * (n - 1) * q2n2 + meanS - meanS * meanS;
+            double covIS = (m - 1) * n * q2n1 - meanI * meanS;
+
+            // Cholesky decomposition of the covariance matrix
+            double stdI = Math.sqrt(Math.max(varI, 0));
+            double corr = stdI > 0 ? covIS / stdI : 0;
+            double stdS = Math.sqrt(Math.max(varS - corr * corr, 0));
+            if (stdI < APPROXIMATION_MIN_STDDEV || Math.sqrt(Math.max(varS, 0)) < APPROXIMATION_MIN_STDDEV) {
+                return false;
+            }
+
+            double z1 = gaussian();
+            double z2 = gaussian();
+            long i = Math.round(meanI + stdI * z1);
+            long s = Math.round(meanS + corr * z1 + stdS * z2);
+
+            // If there are remaining tags at least one slot is left for their collision
+            s = Math.max(0, Math.min(s, tags < slots ? tags : slots - 1));
+            if (tags - s == 1) {
+                s--;
+            }
+            long c = slots - s - Math.max(0, Math.min(i, slots - s));
+            c = Math.max(tags > s ? 1 : 0, Math.min(c, (tags - s) / 2));
+
+            idle += (int) (slots - s - c);
+            success += (int) s;
+            collision += (int) c;
+            return true;
+        }
+
+        /**
+         * Samples a standard normal value (Marsaglia polar method).
+         *
+         * @return the sampled value
+         */
+        private double gaussian() {
+            double u, v, s;
+            do {
+                u = 2 * prng.nextDouble() - 1;
+                v = 2 * prng.nextDouble() - 1;
+                s = u * u + v * v;
+            } while (s >= 1 || s == 0);
+            return u * Math.sqrt(-2 * Math.log(s) / s);
+        }
+
+        /**
+         * Samples a binomial value, small means use the inversion algorithm, otherwise the BTRS algorithm (Hormann,
+         * The generation of binomial random variates) is used.
+         *
+         * @param n the number of trials
+         * @param p the success probability
+         * @return the number of successes
+         */
+        private int binomial(int n, double p) {
+            if (p > 0.5) {
+                return n - binomial(n, 1 - p);
+            }
+            if (n * p < 10) {
+                return binomialInversion(n, p);
+            }
+
+            double stddev = Math.sqrt(n * p * (1 - p));
+            double b = 1.15 + 2.53 * stddev;
+            double a = -0.0873 + 0.0248 * b + 0.01 * p;
+            double c = n * p + 0.5;
+            double vR = 0.92 - 4.2 / b;
+            double r = p / (1 - p);
+            double alpha = (2.83 + 5.1 / b) * stddev;
+            double m = Math.floor((n + 1) * p);
+
+            while (true) {
+                double u = prng.nextDouble() - 0.5;
+                double v = prng.nextDouble();
+                double us = 0.5 - Math.abs(u);
+                double k = Math.floor((2 * a / us + b) * u + c);
+
+                // Squeeze acceptance
+                if (us >= 0.07 && v <= vR) {
+                    return (int) k;
+                }
+                if (k < 0 || k > n) {
+                    continue;
+                }
+
+                // Transformed rejection
+                v = Math.log(v * alpha / (a / (us * us) + b));
+                double bound = (m + 0.5) * Math.log((m + 1) / (r * (n - m + 1)))
+                        + (n + 1) * Math.log((n - m + 1) / (n - k + 1))
+                        + (k + 0.5) * Math.log(r * (n - k + 1) / (k + 1))
+                        + stirlingTail(m) + stirlingTail(n - m) - stirlingTail(k) - stirlingTail(n - k);
+                if (v <= bound) {
+                    return (int) k;
+                }
+            }
+        }
+
+        /**
+         * Samples a binomial value by inversion, the expected number of iterations is n * p.
+         *
+         * @param n the number of trials
+         * @param p the success probability (at most 0.5)
+         * @return the number of successes
+         */
+        private int binomialInversion(int n, double p) {
+            double q = 1 - p;
+            double s = p / q;
+            double a = (n + 1) * s;
+            double r = Math.exp(n * Math.log(q));
+            double u = prng.nextDouble();
+            int x = 0;
+            while (u > r && x < n) {
+                u -= r;
+                x++;
+                r *= a / x - s;
+            }
+            return x;
+        }
+
+        /**
+         * The error of the Stirling approximation of log(k!) for k between 0 and 9.
+         */
+        private static final double[] stirlingTails = {
+                0.0810614667953272, 0.0413406959554092, 0.0276779256849983, 0.02079067210376509, 0.0166446911898211,
+                0.0138761288230707, 0.0118967099458917, 0.0104112652619720, 0.00925546218271273, 0.00833056343336287
+        };
+
+        /**
+         * Returns the error of the Stirling approximation of log(k!).
+         *
+         * @param k the factorial argument
+         * @return the approximation error
+         */
+        private static double stirlingTail(double k) {
+            if (k <= 9) {
+                return stirlingTails[(int) k];
+            }
+            double kp1sq = (k + 1) * (k + 1);
+            return (1.0 / 12 - (1.0 / 360 - 1.0 / 1260 / kp1sq) / kp1sq) / (k + 1);
+        }
+    }
+}
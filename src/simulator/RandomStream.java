@@ -0,0 +1,110 @@
+package simulator;
+
+/**
+ * Reseedable prng based on the SplitMix64 algorithm (the same of {@link java.util.SplittableRandom}). The simulations
+ * receive a seed, so any simulation can be reproduced, and the seeds of independent simulations are derived from a
+ * base seed with {@link #seed(long, long)}.
+ *
+ * @author Pedro Henrique
+ */
+public class RandomStream {
+
+    /**
+     * The SplitMix64 increment.
+     */
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    /**
+     * The current state.
+     */
+    private long state;
+
+    /**
+     * Initializes the prng with the received seed.
+     *
+     * @param seed the seed
+     */
+    public RandomStream(long seed) {
+        state = seed;
+    }
+
+    /**
+     * Restarts the prng with the received seed.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        state = seed;
+    }
+
+    /**
+     * Returns a random long.
+     *
+     * @return a random long
+     */
+    public long nextLong() {
+        return mix64(state += GOLDEN_GAMMA);
+    }
+
+    /**
+     * Returns a random int between 0 and bound (exclusive), without bias.
+     *
+     * @param bound the upper bound, must be positive
+     * @return a random int between 0 and bound (exclusive)
+     */
+    public int nextInt(int bound) {
+        int r = mix32(state += GOLDEN_GAMMA);
+        int m = bound - 1;
+        if ((bound & m) == 0) {
+            return r & m;
+        }
+        for (int u = r >>> 1; u + m - (r = u % bound) < 0; u = mix32(state += GOLDEN_GAMMA) >>> 1) {
+            // Rejects the values that would bias the result
+        }
+        return r;
+    }
+
+    /**
+     * Returns a random double between 0 and 1 (exclusive).
+     *
+     * @return a random double
+     */
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * Derives the seed of an independent stream from a base seed and an index, the derived seeds of different indexes
+     * are uncorrelated. It can be chained to derive seeds from many indexes.
+     *
+     * @param seed  the base seed
+     * @param index the stream index
+     * @return the derived seed
+     */
+    public static long seed(long seed, long index) {
+        return mix64(mix64(seed + GOLDEN_GAMMA) + (index + 1) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * The SplitMix64 64 bits mix function.
+     *
+     * @param z the value to mix
+     * @return the mixed value
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * The SplitMix64 32 bits mix function.
+     *
+     * @param z the value to mix
+     * @return the mixed value
+     */
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+}
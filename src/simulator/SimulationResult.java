@@ -57,104 +57,78 @@ public class SimulationResult {
     //
 
     /**
-     * The simulation (not estimator) execution time in milliseconds.
+     * The whole simulation execution time in milliseconds, including the tag creation and the estimator calls.
      */
     public float executionTime;
 
+    /**
+     * The time spent creating the tags in milliseconds, only measured if {@link Simulator#PHASE_TIMING} is enabled.
+     */
+    public float tagCreationTime;
+
+    /**
+     * The time spent drawing the tag slots of the frames in milliseconds, only measured if
+     * {@link Simulator#PHASE_TIMING} is enabled.
+     */
+    public float slotDrawingTime;
+
+    /**
+     * The time spent classifying the slots as idle, success or collision in milliseconds, only measured if
+     * {@link Simulator#PHASE_TIMING} is enabled.
+     */
+    public float classificationTime;
+
+    /**
+     * The time spent in the estimator frame size calculations in milliseconds, only measured if
+     * {@link Simulator#PHASE_TIMING} is enabled.
+     */
+    public float estimatorTime;
+
     /**
      * Calculates the average result of the received simulations, this method does not check if the simulations uses the
-     * same {@link Estimator} and contains the same tag count, this data is get from the first simulation. At least one
-     * simulation result is expected, otherwise {@link NullPointerException} is throw.
+     * same {@link Estimator} and contains the same tag count, this data is get from the first simulation. The integer
+     * counters are rounded. See {@link SimulationStatistics} to accumulate results without keeping them in a list.
      *
      * @param simulationResults the list of simulation results
      * @return the average result
      */
     public static SimulationResult average(List<SimulationResult> simulationResults) {
-        SimulationResult average = new SimulationResult();
-        average.estimator = simulationResults.get(0).estimator;
-        average.tagCount = simulationResults.get(0).tagCount;
-
-        for (SimulationResult simulationResult : simulationResults) {
-            average.createdFrames += simulationResult.createdFrames;
-            average.createdSlots += simulationResult.createdSlots;
-            average.idleSlots += simulationResult.idleSlots;
-            average.successSlots += simulationResult.successSlots;
-            average.collisionSlots += simulationResult.collisionSlots;
-            average.executionTime += simulationResult.executionTime;
-            average.iterations += simulationResult.iterations;
-        }
-        average.createdFrames /= simulationResults.size();
-        average.createdSlots /= simulationResults.size();
-        average.idleSlots /= simulationResults.size();
-        average.successSlots /= simulationResults.size();
-        average.collisionSlots /= simulationResults.size();
-        average.executionTime /= simulationResults.size();
-        average.iterations /= simulationResults.size();
-
-        return average;
+        return statistics(simulationResults).average();
     }
 
     /**
      * Calculates the min result of the received simulations, this method does not check if the simulations uses the
-     * same {@link Estimator} and contains the same tag count, this data is get from the first simulation. At least one
-     * simulation result is expected, otherwise {@link NullPointerException} is throw.
+     * same {@link Estimator} and contains the same tag count, this data is get from the first simulation.
      *
      * @param simulationResults the list of simulation results
      * @return the min result
      */
     public static SimulationResult min(List<SimulationResult> simulationResults) {
-        SimulationResult min = new SimulationResult();
-        min.estimator = simulationResults.get(0).estimator;
-        min.tagCount = simulationResults.get(0).tagCount;
-        min.createdFrames = Integer.MAX_VALUE;
-        min.createdSlots = Integer.MAX_VALUE;
-        min.idleSlots = Integer.MAX_VALUE;
-        min.successSlots = Integer.MAX_VALUE;
-        min.collisionSlots = Integer.MAX_VALUE;
-        min.executionTime = Integer.MAX_VALUE;
-        min.iterations = Integer.MAX_VALUE;
-
-        for (SimulationResult simulationResult : simulationResults) {
-            min.createdFrames = min.createdFrames > simulationResult.createdFrames ? simulationResult.createdFrames : min.createdFrames;
-            min.createdSlots = min.createdSlots > simulationResult.createdSlots ? simulationResult.createdSlots : min.createdSlots;
-            min.idleSlots = min.idleSlots > simulationResult.idleSlots ? simulationResult.idleSlots : min.idleSlots;
-            min.successSlots = min.successSlots > simulationResult.successSlots ? simulationResult.successSlots : min.successSlots;
-            min.collisionSlots = min.collisionSlots > simulationResult.collisionSlots ? simulationResult.collisionSlots : min.collisionSlots;
-            min.executionTime = min.executionTime > simulationResult.executionTime ? simulationResult.executionTime : min.executionTime;
-            min.iterations = min.iterations > simulationResult.iterations ? simulationResult.iterations : min.iterations;
-        }
-        return min;
+        return statistics(simulationResults).min();
     }
 
     /**
      * Calculates the max result of the received simulations, this method does not check if the simulations uses the
-     * same {@link Estimator} and contains the same tag count, this data is get from the first simulation. At least one
-     * simulation result is expected, otherwise {@link NullPointerException} is throw.
+     * same {@link Estimator} and contains the same tag count, this data is get from the first simulation.
      *
      * @param simulationResults the list of simulation results
      * @return the max result
      */
     public static SimulationResult max(List<SimulationResult> simulationResults) {
-        SimulationResult max = new SimulationResult();
-        max.estimator = simulationResults.get(0).estimator;
-        max.tagCount = simulationResults.get(0).tagCount;
-        max.createdFrames = Integer.MIN_VALUE;
-        max.createdSlots = Integer.MIN_VALUE;
-        max.idleSlots = Integer.MIN_VALUE;
-        max.successSlots = Integer.MIN_VALUE;
-        max.collisionSlots = Integer.MIN_VALUE;
-        max.executionTime = Integer.MIN_VALUE;
-        max.iterations = Integer.MIN_VALUE;
+        return statistics(simulationResults).max();
+    }
 
+    /**
+     * Accumulates the received simulations in statistics.
+     *
+     * @param simulationResults the list of simulation results
+     * @return the simulation statistics
+     */
+    private static SimulationStatistics statistics(List<SimulationResult> simulationResults) {
+        SimulationStatistics statistics = new SimulationStatistics();
         for (SimulationResult simulationResult : simulationResults) {
-            max.createdFrames = max.createdFrames < simulationResult.createdFrames ? simulationResult.createdFrames : max.createdFrames;
-            max.createdSlots = max.createdSlots < simulationResult.createdSlots ? simulationResult.createdSlots : max.createdSlots;
-            max.idleSlots = max.idleSlots < simulationResult.idleSlots ? simulationResult.idleSlots : max.idleSlots;
-            max.successSlots = max.successSlots < simulationResult.successSlots ? simulationResult.successSlots : max.successSlots;
-            max.collisionSlots = max.collisionSlots < simulationResult.collisionSlots ? simulationResult.collisionSlots : max.collisionSlots;
-            max.executionTime = max.executionTime < simulationResult.executionTime ? simulationResult.executionTime : max.executionTime;
-            max.iterations = max.iterations < simulationResult.iterations ? simulationResult.iterations : max.iterations;
+            statistics.add(simulationResult);
         }
-        return max;
+        return statistics;
     }
 }
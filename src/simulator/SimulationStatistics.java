@@ -0,0 +1,259 @@
+package simulator;
+
+import estimator.Estimator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Accumulates the results of many simulations of the same estimator and tag count in constant memory, the results are
+ * added one at a time and each {@link Counter} is stored in a {@link Statistic}. Statistics calculated in different
+ * threads can be merged.
+ *
+ * @author Pedro Henrique
+ */
+public class SimulationStatistics {
+
+    /**
+     * The simulation result counters.
+     */
+    public enum Counter {
+        CREATED_FRAMES("createdFrames"),
+        CREATED_SLOTS("createdSlots"),
+        IDLE_SLOTS("idleSlots"),
+        SUCCESS_SLOTS("successSlots"),
+        COLLISION_SLOTS("collisionSlots"),
+        ITERATIONS("iterations"),
+        EXECUTION_TIME("executionTime"),
+        TAG_CREATION_TIME("tagCreationTime"),
+        SLOT_DRAWING_TIME("slotDrawingTime"),
+        CLASSIFICATION_TIME("classificationTime"),
+        ESTIMATOR_TIME("estimatorTime");
+
+        /**
+         * The counter name, the same of the {@link SimulationResult} field.
+         */
+        public final String fieldName;
+
+        Counter(String fieldName) {
+            this.fieldName = fieldName;
+        }
+
+        /**
+         * Returns the counter value in the received simulation result.
+         *
+         * @param simulationResult the simulation result
+         * @return the counter value
+         */
+        public double value(SimulationResult simulationResult) {
+            switch (this) {
+                case CREATED_FRAMES:
+                    return simulationResult.createdFrames;
+                case CREATED_SLOTS:
+                    return simulationResult.createdSlots;
+                case IDLE_SLOTS:
+                    return simulationResult.idleSlots;
+                case SUCCESS_SLOTS:
+                    return simulationResult.successSlots;
+                case COLLISION_SLOTS:
+                    return simulationResult.collisionSlots;
+                case ITERATIONS:
+                    return simulationResult.iterations;
+                case EXECUTION_TIME:
+                    return simulationResult.executionTime;
+                case TAG_CREATION_TIME:
+                    return simulationResult.tagCreationTime;
+                case SLOT_DRAWING_TIME:
+                    return simulationResult.slotDrawingTime;
+                case CLASSIFICATION_TIME:
+                    return simulationResult.classificationTime;
+                default:
+                    return simulationResult.estimatorTime;
+            }
+        }
+    }
+
+    /**
+     * The estimator used in the simulations.
+     */
+    public Estimator estimator;
+
+    /**
+     * The number of tags used in the simulations.
+     */
+    public int tagCount;
+
+    /**
+     * The statistic of each counter, indexed by the counter ordinal.
+     */
+    private final Statistic[] statistics = new Statistic[Counter.values().length];
+
+    /**
+     * Initializes empty statistics.
+     */
+    public SimulationStatistics() {
+        for (int i = 0; i < statistics.length; i++) {
+            statistics[i] = new Statistic();
+        }
+    }
+
+    /**
+     * Adds a simulation result, the estimator and tag count are get from the first result.
+     *
+     * @param simulationResult the simulation result
+     */
+    public void add(SimulationResult simulationResult) {
+        if (count() == 0) {
+            estimator = simulationResult.estimator;
+            tagCount = simulationResult.tagCount;
+        }
+        for (Counter counter : Counter.values()) {
+            statistics[counter.ordinal()].add(counter.value(simulationResult));
+        }
+    }
+
+    /**
+     * Merges the received statistics in these statistics, the received statistics are not changed.
+     *
+     * @param other the statistics to merge
+     */
+    public void merge(SimulationStatistics other) {
+        if (count() == 0) {
+            estimator = other.estimator;
+            tagCount = other.tagCount;
+        }
+        for (int i = 0; i < statistics.length; i++) {
+            statistics[i].merge(other.statistics[i]);
+        }
+    }
+
+    /**
+     * Returns the number of simulations.
+     *
+     * @return the number of simulations
+     */
+    public int count() {
+        return (int) statistics[0].count();
+    }
+
+    /**
+     * Writes the tag count and the counter statistics, the estimator is not written.
+     *
+     * @param output the output
+     * @throws IOException if the statistics cannot be written
+     */
+    public void write(DataOutput output) throws IOException {
+        output.writeInt(tagCount);
+        output.writeInt(statistics.length);
+        for (Statistic statistic : statistics) {
+            statistic.write(output);
+        }
+    }
+
+    /**
+     * Reads statistics written with {@link #write(DataOutput)}.
+     *
+     * @param input     the input
+     * @param estimator the estimator of the statistics
+     * @return the statistics
+     * @throws IOException if the statistics cannot be read, are corrupted or have other counters
+     */
+    public static SimulationStatistics read(DataInput input, Estimator estimator) throws IOException {
+        SimulationStatistics simulationStatistics = new SimulationStatistics();
+        simulationStatistics.estimator = estimator;
+        simulationStatistics.tagCount = input.readInt();
+        if (input.readInt() != simulationStatistics.statistics.length) {
+            throw new IOException("The statistics have other counters");
+        }
+        for (int i = 0; i < simulationStatistics.statistics.length; i++) {
+            simulationStatistics.statistics[i] = Statistic.read(input);
+        }
+        return simulationStatistics;
+    }
+
+    /**
+     * Returns the statistic of the received counter.
+     *
+     * @param counter the counter
+     * @return the counter statistic
+     */
+    public Statistic get(Counter counter) {
+        return statistics[counter.ordinal()];
+    }
+
+    /**
+     * Returns the average result, the integer counters are rounded.
+     *
+     * @return the average result
+     */
+    public SimulationResult average() {
+        SimulationResult average = newResult();
+        average.createdFrames = (int) Math.round(get(Counter.CREATED_FRAMES).mean());
+        average.createdSlots = (int) Math.round(get(Counter.CREATED_SLOTS).mean());
+        average.idleSlots = (int) Math.round(get(Counter.IDLE_SLOTS).mean());
+        average.successSlots = (int) Math.round(get(Counter.SUCCESS_SLOTS).mean());
+        average.collisionSlots = (int) Math.round(get(Counter.COLLISION_SLOTS).mean());
+        average.iterations = (int) Math.round(get(Counter.ITERATIONS).mean());
+        average.executionTime = (float) get(Counter.EXECUTION_TIME).mean();
+        average.tagCreationTime = (float) get(Counter.TAG_CREATION_TIME).mean();
+        average.slotDrawingTime = (float) get(Counter.SLOT_DRAWING_TIME).mean();
+        average.classificationTime = (float) get(Counter.CLASSIFICATION_TIME).mean();
+        average.estimatorTime = (float) get(Counter.ESTIMATOR_TIME).mean();
+        return average;
+    }
+
+    /**
+     * Returns the min result.
+     *
+     * @return the min result
+     */
+    public SimulationResult min() {
+        SimulationResult min = newResult();
+        min.createdFrames = (int) get(Counter.CREATED_FRAMES).min();
+        min.createdSlots = (int) get(Counter.CREATED_SLOTS).min();
+        min.idleSlots = (int) get(Counter.IDLE_SLOTS).min();
+        min.successSlots = (int) get(Counter.SUCCESS_SLOTS).min();
+        min.collisionSlots = (int) get(Counter.COLLISION_SLOTS).min();
+        min.iterations = (int) get(Counter.ITERATIONS).min();
+        min.executionTime = (float) get(Counter.EXECUTION_TIME).min();
+        min.tagCreationTime = (float) get(Counter.TAG_CREATION_TIME).min();
+        min.slotDrawingTime = (float) get(Counter.SLOT_DRAWING_TIME).min();
+        min.classificationTime = (float) get(Counter.CLASSIFICATION_TIME).min();
+        min.estimatorTime = (float) get(Counter.ESTIMATOR_TIME).min();
+        return min;
+    }
+
+    /**
+     * Returns the max result.
+     *
+     * @return the max result
+     */
+    public SimulationResult max() {
+        SimulationResult max = newResult();
+        max.createdFrames = (int) get(Counter.CREATED_FRAMES).max();
+        max.createdSlots = (int) get(Counter.CREATED_SLOTS).max();
+        max.idleSlots = (int) get(Counter.IDLE_SLOTS).max();
+        max.successSlots = (int) get(Counter.SUCCESS_SLOTS).max();
+        max.collisionSlots = (int) get(Counter.COLLISION_SLOTS).max();
+        max.iterations = (int) get(Counter.ITERATIONS).max();
+        max.executionTime = (float) get(Counter.EXECUTION_TIME).max();
+        max.tagCreationTime = (float) get(Counter.TAG_CREATION_TIME).max();
+        max.slotDrawingTime = (float) get(Counter.SLOT_DRAWING_TIME).max();
+        max.classificationTime = (float) get(Counter.CLASSIFICATION_TIME).max();
+        max.estimatorTime = (float) get(Counter.ESTIMATOR_TIME).max();
+        return max;
+    }
+
+    /**
+     * Creates a result with the statistics estimator and tag count.
+     *
+     * @return the new result
+     */
+    private SimulationResult newResult() {
+        SimulationResult result = new SimulationResult();
+        result.estimator = estimator;
+        result.tagCount = tagCount;
+        return result;
+    }
+}
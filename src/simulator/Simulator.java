@@ -2,6 +2,8 @@ package simulator;
 
 import estimator.Estimator;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * Class to test the simulators.
  *
@@ -9,6 +11,13 @@ import estimator.Estimator;
  */
 public class Simulator {
 
+    /**
+     * Indicates if the time of each simulation phase (tag creation, slot drawing, slot classification and estimator)
+     * is measured, enabled with the "simulator.phaseTiming" system property. The flag is constant, so when disabled
+     * the timing code is removed by the JIT compiler.
+     */
+    public static final boolean PHASE_TIMING = Boolean.getBoolean("simulator.phaseTiming");
+
     /**
      * Prevents instantiation.
      */
@@ -16,28 +25,62 @@ public class Simulator {
     }
 
     /**
-     * Simulates an estimator with the received tag count.
+     * Simulates an estimator with the received tag count and a random seed.
      *
      * @param estimator the estimator to test
      * @param tagCount  the number of tags
      * @return a {@link SimulationResult} with the simulation data
      */
     public static SimulationResult simulate(Estimator estimator, int tagCount) {
+        return simulate(estimator, tagCount, ThreadLocalRandom.current().nextLong());
+    }
 
-        // Starting the simulator execution time
+    /**
+     * Simulates an estimator with the received tag count, the same seed always produces the same tag slots, so the
+     * simulation can be reproduced.
+     *
+     * @param estimator the estimator to test
+     * @param tagCount  the number of tags
+     * @param seed      the seed of the tags prng
+     * @return a {@link SimulationResult} with the simulation data
+     */
+    public static SimulationResult simulate(Estimator estimator, int tagCount, long seed) {
+        return simulate(estimator, tagCount, seed, null);
+    }
+
+    /**
+     * Simulates an estimator with the received tag count and seed, the frames are sent to the received trace.
+     *
+     * @param estimator the estimator to test
+     * @param tagCount  the number of tags
+     * @param seed      the seed of the tags prng
+     * @param trace     the trace that receives the frames, can be null
+     * @return a {@link SimulationResult} with the simulation data
+     */
+    public static SimulationResult simulate(Estimator estimator, int tagCount, long seed, FrameTrace trace) {
+
+        // Starting the simulator execution time, the phase times are accumulated in nanoseconds
         long executionStartTime = System.nanoTime();
+        long phaseStartTime;
+        long slotDrawingTime = 0;
+        long classificationTime = 0;
+        long estimatorTime = 0;
 
-        // Creating tags
-        Tag[] tags = new Tag[tagCount];
-        for (int i = 0; i < tags.length; i++) {
-            (tags[i] = new Tag()).readerStarting();
-        }
+        // Creating tags, a primitive backed population from the thread arena
+        FrameArena arena = FrameArena.get();
+        TagPopulation population = arena.population(tagCount);
+        population.setSeed(seed);
+        population.readerStarting();
+        long tagCreationTime = PHASE_TIMING ? System.nanoTime() - executionStartTime : 0;
 
         // Creating the simulation result, it will save the execution information
         SimulationResult simulationResult = new SimulationResult();
         simulationResult.estimator = estimator;
         estimator.setSimulationResult(simulationResult);
         simulationResult.tagCount = tagCount;
+        if (trace != null) {
+            trace.simulationStarted(estimator, tagCount, seed);
+        }
 
         // Setting the first frame size
         int currentFrameSize = estimator.initialFrameSize();
@@ -49,20 +92,19 @@ public class Simulator {
             switch (estimator.getType()) {
                 case SIMPLE_DFSA:
 
-                    // Crating the frame
-                    int[] frame = new int[currentFrameSize];
-                    Tag[] frameTags = new Tag[currentFrameSize];
+                    // Crating the frame, the buffers are reused from the arena
+                    int[] frame = arena.slotTagCounts(currentFrameSize);
+                    int[] frameTags = arena.slotTags(currentFrameSize);
 
                     simulationResult.createdSlots += currentFrameSize;
 
-                    // Getting the slot positions of all tags
-                    for (Tag tag : tags) {
-                        int slot = tag.calculateAndGetSlot(currentFrameSize);
-                        if (slot == -1) { // Silenced tags respond -1
-                            continue;
-                        }
-                        frame[slot]++;
-                        frameTags[slot] = tag;
+                    // Getting the slot positions of all active tags, silenced tags are not visited
+                    phaseStartTime = PHASE_TIMING ? System.nanoTime() : 0;
+                    drawFrame(population, currentFrameSize, frame, frameTags);
+                    if (PHASE_TIMING) {
+                        long now = System.nanoTime();
+                        slotDrawingTime += now - phaseStartTime;
+                        phaseStartTime = now;
                     }
 
                     // Counting idle, success and collision slots
@@ -76,7 +118,7 @@ public class Simulator {
                                 break;
                             case 1:
                                 frameSuccessSlots++;
-                                frameTags[i].communicationSuccessful(); // Silences the tag if success
+                                population.communicationSuccessful(frameTags[i]); // Silences the tag if success
                                 break;
                             default:
                                 frameCollisionSlots++;
@@ -86,9 +128,20 @@ public class Simulator {
                     simulationResult.idleSlots += frameIdleSlots;
                     simulationResult.successSlots += frameSuccessSlots;
                     simulationResult.collisionSlots += frameCollisionSlots;
+                    if (PHASE_TIMING) {
+                        long now = System.nanoTime();
+                        classificationTime += now - phaseStartTime;
+                        phaseStartTime = now;
+                    }
+                    if (trace != null) {
+                        trace.frame(currentFrameSize, frameIdleSlots, frameSuccessSlots, frameCollisionSlots);
+                    }
 
                     // Calculating next frame size
                     currentFrameSize = estimator.nextFrameSize(frameIdleSlots, frameSuccessSlots, frameCollisionSlots);
+                    if (PHASE_TIMING) {
+                        estimatorTime += System.nanoTime() - phaseStartTime;
+                    }
 
                     // Stops if the frame size is 0
                     if (currentFrameSize == 0) {
@@ -97,21 +150,37 @@ public class Simulator {
                     break;
                 case COMPLEX_DFSA:
 
-                    // Stop conditions
-                    boolean frameSizeChanged = true;
+                    // Stop condition
                     boolean collisionsInFrame = false;
 
+                    /*
+                     * The query adjust makes all active tags draw their slot counters, instead of decrementing the
+                     * counters in each query rep, the tags are bucketed by counter once, so the query rep of the slot
+                     * i only reads the tags whose counter reaches 0 in it
+                     */
+                    int[] slotTagCounts = arena.slotTagCounts(currentFrameSize);
+                    int[] slotTags = arena.slotTags(currentFrameSize);
+                    phaseStartTime = PHASE_TIMING ? System.nanoTime() : 0;
+                    drawFrame(population, currentFrameSize, slotTagCounts, slotTags);
+                    if (PHASE_TIMING) {
+                        long now = System.nanoTime();
+                        slotDrawingTime += now - phaseStartTime;
+                        phaseStartTime = now;
+                    }
+
+                    // The estimator time of the query reps, the rest of the slots loop is classification
+                    long frameEstimatorTime = 0;
+
+                    // The frame counts of the trace are the difference of the totals after the frame
+                    int frameSize = currentFrameSize;
+                    int previousIdleSlots = simulationResult.idleSlots;
+                    int previousSuccessSlots = simulationResult.successSlots;
+                    int previousCollisionSlots = simulationResult.collisionSlots;
+
                     // Iterates over all slots in the frame
-                    int tagsInSlot = 0;
-                    Tag lastTag = null;
                     for (int i = 0; i < currentFrameSize; i++) {
                         simulationResult.createdSlots++;
-                        for (Tag tag : tags) {
-                            if (frameSizeChanged ? tag.queryAdjust(currentFrameSize) : tag.queryRep()) {
-                                tagsInSlot++;
-                                lastTag = tag;
-                            }
-                        }
+                        int tagsInSlot = slotTagCounts[i];
 
                         // Checks what happened in the slot (idle, success, collision)
                         int slotIdle = tagsInSlot == 0 ? 1 : 0;
@@ -124,7 +193,7 @@ public class Simulator {
 
                         // If success, silences the tag
                         if (slotSuccess == 1) {
-                            lastTag.communicationSuccessful();
+                            population.communicationSuccessful(slotTags[i]);
                         }
 
                         // If collision, sets the collision flag
@@ -136,19 +205,28 @@ public class Simulator {
                         if (i == currentFrameSize - 1 && !collisionsInFrame) {
                             allTagsRead = true;
                         } else {
+                            long estimatorStartTime = PHASE_TIMING ? System.nanoTime() : 0;
                             int nextFrameSize = estimator.nextFrameSize(slotIdle, slotSuccess, slotCollision);
+                            if (PHASE_TIMING) {
+                                frameEstimatorTime += System.nanoTime() - estimatorStartTime;
+                            }
 
-                            // Checks if the frame size changes, if false, finishes the current frame
-                            if (nextFrameSize == currentFrameSize) {
-                                frameSizeChanged = false;
-                                tagsInSlot = 0;
-                                lastTag = null;
-                            } else {
+                            // Checks if the frame size changes, if true, starts a new frame with a query adjust
+                            if (nextFrameSize != currentFrameSize) {
                                 currentFrameSize = nextFrameSize;
                                 break;
                             }
                         }
                     }
+                    if (PHASE_TIMING) {
+                        estimatorTime += frameEstimatorTime;
+                        classificationTime += System.nanoTime() - phaseStartTime - frameEstimatorTime;
+                    }
+                    if (trace != null) {
+                        trace.frame(frameSize, simulationResult.idleSlots - previousIdleSlots,
+                                simulationResult.successSlots - previousSuccessSlots,
+                                simulationResult.collisionSlots - previousCollisionSlots);
+                    }
                     break;
             }
         }
@@ -156,6 +234,31 @@ public class Simulator {
         // Calculates the execution end time
         long executionEndTime = System.nanoTime();
         simulationResult.executionTime = (executionEndTime - executionStartTime) / 1e6f;
+        simulationResult.tagCreationTime = tagCreationTime / 1e6f;
+        simulationResult.slotDrawingTime = slotDrawingTime / 1e6f;
+        simulationResult.classificationTime = classificationTime / 1e6f;
+        simulationResult.estimatorTime = estimatorTime / 1e6f;
+        if (trace != null) {
+            trace.simulationFinished(simulationResult);
+        }
         return simulationResult;
     }
+
+    /**
+     * Calculates the slots of all active tags of the population and counts how many tags respond in each slot, the
+     * last tag that responds in each slot is saved too.
+     *
+     * @param population the tag population
+     * @param frameSize  the size of the frame
+     * @param frame      the number of tags in each slot, must be cleared
+     * @param frameTags  the last tag in each slot
+     */
+    static void drawFrame(TagPopulation population, int frameSize, int[] frame, int[] frameTags) {
+        int activeTags = population.calculateSlots(frameSize);
+        for (int position = 0; position < activeTags; position++) {
+            int slot = population.getSlot(position);
+            frame[slot]++;
+            frameTags[slot] = population.getActiveTag(position);
+        }
+    }
 }
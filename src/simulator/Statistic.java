@@ -0,0 +1,306 @@
+package simulator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Online statistic of a sequence of non negative values, it uses constant memory (independent of the number of
+ * values) and can be merged with other statistics. The mean and variance are calculated with the Welford algorithm,
+ * the percentiles are approximated with a log scale histogram (relative error lesser than 1/{@link #SUB_BUCKETS}).
+ *
+ * @author Pedro Henrique
+ */
+public class Statistic {
+
+    /**
+     * The number of histogram buckets per power of two.
+     */
+    private static final int SUB_BUCKETS = 16;
+
+    /**
+     * The number of values.
+     */
+    private long count;
+
+    /**
+     * The mean of the values.
+     */
+    private double mean;
+
+    /**
+     * The sum of the squared differences from the mean.
+     */
+    private double m2;
+
+    /**
+     * The min and max values.
+     */
+    private double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * The number of values lesser or equal to zero.
+     */
+    private long zeroCount;
+
+    /**
+     * The histogram bucket counts, the first element is the bucket with index firstBucket. Only the buckets between
+     * the min and max values are allocated.
+     */
+    private int[] buckets = new int[0];
+
+    /**
+     * The index of the first allocated bucket.
+     */
+    private int firstBucket;
+
+    /**
+     * Adds a value to the statistic.
+     *
+     * @param value the value
+     */
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        if (value > 0) {
+            int bucket = bucket(value);
+            ensureBuckets(bucket, bucket);
+            buckets[bucket - firstBucket]++;
+        } else {
+            zeroCount++;
+        }
+    }
+
+    /**
+     * Merges the received statistic values in this statistic, the received statistic is not changed.
+     *
+     * @param other the statistic to merge
+     */
+    public void merge(Statistic other) {
+        if (other.count == 0) {
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        zeroCount += other.zeroCount;
+        if (other.buckets.length > 0) {
+            ensureBuckets(other.firstBucket, other.firstBucket + other.buckets.length - 1);
+            for (int i = 0; i < other.buckets.length; i++) {
+                buckets[other.firstBucket - firstBucket + i] += other.buckets[i];
+            }
+        }
+    }
+
+    /**
+     * Writes the statistic state, it can be read with {@link #read(DataInput)}.
+     *
+     * @param output the output
+     * @throws IOException if the statistic cannot be written
+     */
+    public void write(DataOutput output) throws IOException {
+        output.writeLong(count);
+        output.writeDouble(mean);
+        output.writeDouble(m2);
+        output.writeDouble(min);
+        output.writeDouble(max);
+        output.writeLong(zeroCount);
+        output.writeInt(firstBucket);
+        output.writeInt(buckets.length);
+        for (int bucket : buckets) {
+            output.writeInt(bucket);
+        }
+    }
+
+    /**
+     * Reads a statistic written with {@link #write(DataOutput)}.
+     *
+     * @param input the input
+     * @return the statistic
+     * @throws IOException if the statistic cannot be read or is corrupted
+     */
+    public static Statistic read(DataInput input) throws IOException {
+        Statistic statistic = new Statistic();
+        statistic.count = input.readLong();
+        statistic.mean = input.readDouble();
+        statistic.m2 = input.readDouble();
+        statistic.min = input.readDouble();
+        statistic.max = input.readDouble();
+        statistic.zeroCount = input.readLong();
+        statistic.firstBucket = input.readInt();
+        int bucketCount = input.readInt();
+        if (statistic.count < 0 || statistic.zeroCount < 0 || bucketCount < 0 || bucketCount > 1 << 16) {
+            throw new IOException("Corrupted statistic");
+        }
+        statistic.buckets = new int[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            statistic.buckets[i] = input.readInt();
+        }
+        return statistic;
+    }
+
+    /**
+     * Returns the number of values.
+     *
+     * @return the number of values
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Returns the mean of the values, 0 if there is no values.
+     *
+     * @return the mean
+     */
+    public double mean() {
+        return mean;
+    }
+
+    /**
+     * Returns the sample variance of the values, 0 if there is less than two values.
+     *
+     * @return the variance
+     */
+    public double variance() {
+        return count > 1 ? m2 / (count - 1) : 0;
+    }
+
+    /**
+     * Returns the sample standard deviation of the values.
+     *
+     * @return the standard deviation
+     */
+    public double standardDeviation() {
+        return Math.sqrt(variance());
+    }
+
+    /**
+     * Returns the half width of the confidence interval of the mean, using the normal approximation.
+     *
+     * @param confidence the confidence level, between 0 and 1 (exclusive)
+     * @return the confidence interval half width, infinity if there is less than two values
+     */
+    public double confidenceHalfWidth(double confidence) {
+        return count > 1 ? normalQuantile(1 - (1 - confidence) / 2) * standardDeviation() / Math.sqrt(count) : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns the min value, 0 if there is no values.
+     *
+     * @return the min value
+     */
+    public double min() {
+        return count > 0 ? min : 0;
+    }
+
+    /**
+     * Returns the max value, 0 if there is no values.
+     *
+     * @return the max value
+     */
+    public double max() {
+        return count > 0 ? max : 0;
+    }
+
+    /**
+     * Returns the approximated percentile of the values, the center of the histogram bucket that contains it.
+     *
+     * @param percentile the percentile, between 0 and 1
+     * @return the approximated percentile value, 0 if there is no values
+     */
+    public double percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * count);
+        long seen = zeroCount;
+        if (rank <= seen) {
+            return min;
+        }
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (rank <= seen) {
+                double center = (bucketLowerBound(firstBucket + i) + bucketLowerBound(firstBucket + i + 1)) / 2;
+                return Math.max(min, Math.min(max, center));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Calculates the quantile function of the standard normal distribution (Acklam algorithm, relative error lesser
+     * than 1.15e-9).
+     *
+     * @param p the probability, between 0 and 1 (exclusive)
+     * @return the value whose cumulative probability is p
+     */
+    public static double normalQuantile(double p) {
+        if (p < 0.02425) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((-7.784894002430293e-03 * q - 3.223964580411365e-01) * q - 2.400758277161838e+00) * q - 2.549732539343734e+00) * q + 4.374664141464968e+00) * q + 2.938163982698783e+00)
+                    / ((((7.784695709041462e-03 * q + 3.224671290700398e-01) * q + 2.445134137142996e+00) * q + 3.754408661907416e+00) * q + 1);
+        }
+        if (p > 1 - 0.02425) {
+            return -normalQuantile(1 - p);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((-3.969683028665376e+01 * r + 2.209460984245205e+02) * r - 2.759285104469687e+02) * r + 1.383577518672690e+02) * r - 3.066479806614716e+01) * r + 2.506628277459239e+00) * q
+                / (((((-5.447609879822406e+01 * r + 1.615858368580409e+02) * r - 1.556989798598866e+02) * r + 6.680131188771972e+01) * r - 1.328068155288572e+01) * r + 1);
+    }
+
+    /**
+     * Calculates the histogram bucket of a positive value.
+     *
+     * @param value the value
+     * @return the bucket index
+     */
+    private static int bucket(double value) {
+        int exponent = Math.getExponent(value);
+        double mantissa = value / Math.scalb(1d, exponent);
+        return exponent * SUB_BUCKETS + (int) ((mantissa - 1) * SUB_BUCKETS);
+    }
+
+    /**
+     * Calculates the lower bound of a histogram bucket.
+     *
+     * @param bucket the bucket index
+     * @return the bucket lower bound
+     */
+    private static double bucketLowerBound(int bucket) {
+        int exponent = Math.floorDiv(bucket, SUB_BUCKETS);
+        return Math.scalb(1 + (double) Math.floorMod(bucket, SUB_BUCKETS) / SUB_BUCKETS, exponent);
+    }
+
+    /**
+     * Grows the histogram to contain the received bucket range.
+     *
+     * @param first the first bucket
+     * @param last  the last bucket (inclusive)
+     */
+    private void ensureBuckets(int first, int last) {
+        if (buckets.length == 0) {
+            buckets = new int[last - first + 1];
+            firstBucket = first;
+            return;
+        }
+        int newFirst = Math.min(first, firstBucket);
+        int newLast = Math.max(last, firstBucket + buckets.length - 1);
+        if (newFirst == firstBucket && newLast - newFirst + 1 == buckets.length) {
+            return;
+        }
+        int[] newBuckets = new int[newLast - newFirst + 1];
+        System.arraycopy(buckets, 0, newBuckets, firstBucket - newFirst, buckets.length);
+        buckets = newBuckets;
+        firstBucket = newFirst;
+    }
+}
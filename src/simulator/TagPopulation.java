@@ -0,0 +1,181 @@
+package simulator;
+
+import java.util.Arrays;
+
+/**
+ * Represents a whole population of type 1 or 3 tags stored in primitive arrays, it replaces an array of {@link Tag}
+ * objects in the simulator. Each tag is identified by its index, the silence states are stored in a bitset and all the
+ * tags share the population prng.
+ * <p>
+ * The not silenced tags are kept in a compacted active list, silenced tags are removed from it when the next slots
+ * are calculated, so a frame costs only the number of unread tags.
+ *
+ * @author Pedro Henrique
+ */
+public class TagPopulation {
+
+    /**
+     * The number of tags in the population.
+     */
+    private int size;
+
+    /**
+     * The indexes of the active (not silenced in the last frame) tags, only the first activeCount are valid.
+     */
+    private int[] active;
+
+    /**
+     * The number of active tags.
+     */
+    private int activeCount;
+
+    /**
+     * The current slot of each active tag, indexed by the active list position.
+     */
+    private int[] slots;
+
+    /**
+     * The silence state of each tag, one bit per tag.
+     */
+    private long[] silenced;
+
+    /**
+     * The population prng, shared by all tags.
+     */
+    private final RandomStream prng;
+
+    /**
+     * Initializes the population with the received tag count, all tags start silenced.
+     *
+     * @param size the number of tags
+     */
+    public TagPopulation(int size) {
+        active = new int[size];
+        slots = new int[size];
+        silenced = new long[(size + 63) >>> 6];
+        prng = new RandomStream(0);
+        resize(size);
+    }
+
+    /**
+     * Changes the number of tags in the population, all tags become silenced. The internal arrays are reallocated
+     * only if the new size is greater than the current capacity, so the population can be reused between simulations.
+     *
+     * @param size the number of tags
+     */
+    public void resize(int size) {
+        if (size > active.length) {
+            active = new int[size];
+            slots = new int[size];
+            silenced = new long[(size + 63) >>> 6];
+        }
+        this.size = size;
+        activeCount = 0;
+        Arrays.fill(silenced, 0, (size + 63) >>> 6, -1L);
+    }
+
+    /**
+     * Returns the number of tags in the population.
+     *
+     * @return the number of tags
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of active tags, the tags silenced after the last {@link #calculateSlots(int)} call are still
+     * counted.
+     *
+     * @return the number of active tags
+     */
+    public int activeCount() {
+        return activeCount;
+    }
+
+    // Starting and finishing methods
+
+    /**
+     * Restarts the population prng with the received seed, the same seed produces the same slots.
+     *
+     * @param seed the seed
+     */
+    public void setSeed(long seed) {
+        prng.setSeed(seed);
+    }
+
+    /**
+     * Indicates to all tags that a reader is starting a communication. See {@link Tag#readerStarting()}.
+     */
+    public void readerStarting() {
+        Arrays.fill(silenced, 0, (size + 63) >>> 6, 0L);
+        for (int tag = 0; tag < size; tag++) {
+            active[tag] = tag;
+        }
+        activeCount = size;
+    }
+
+    /**
+     * Indicates to the tag that the reader could understand its response. See {@link Tag#communicationSuccessful()}.
+     *
+     * @param tag the tag index
+     */
+    public void communicationSuccessful(int tag) {
+        silenced[tag >>> 6] |= 1L << tag;
+    }
+
+    /**
+     * Returns true if the tag is silenced.
+     *
+     * @param tag the tag index
+     * @return true if the tag is silenced
+     */
+    public boolean isSilenced(int tag) {
+        return (silenced[tag >>> 6] & 1L << tag) != 0;
+    }
+
+    // Type 1 and 3 communication methods
+
+    /**
+     * Removes the silenced tags from the active list and calculates a new slot number for each remaining tag. See
+     * {@link Tag#calculateAndGetSlot(int)}, in type 3 methods it is the slot counter drawn by
+     * {@link Tag#queryAdjust(int)}, the tag responds in the query rep that decrements it to 0.
+     *
+     * @param frameSize the size of the reader frame
+     * @return the number of active tags
+     */
+    public int calculateSlots(int frameSize) {
+        int count = 0;
+        for (int i = 0; i < activeCount; i++) {
+            int tag = active[i];
+            if (isSilenced(tag)) {
+                continue;
+            }
+            active[count] = tag;
+            slots[count] = prng.nextInt(frameSize);
+            count++;
+        }
+        return activeCount = count;
+    }
+
+    /**
+     * Returns the index of the tag in the received active list position.
+     *
+     * @param position the active list position, between 0 and {@link #activeCount()} (exclusive)
+     * @return the tag index
+     */
+    public int getActiveTag(int position) {
+        return active[position];
+    }
+
+    /**
+     * Returns the slot calculated in the last {@link #calculateSlots(int)} call for the tag in the received active
+     * list position.
+     *
+     * @param position the active list position, between 0 and {@link #activeCount()} (exclusive)
+     * @return the slot number, between 0 and frameSize (exclusive)
+     */
+    public int getSlot(int position) {
+        return slots[position];
+    }
+}
@@ -0,0 +1,233 @@
+package simulator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the simulation records of a trace file written by {@link TraceWriter}, one at a time. The file is read through
+ * a direct buffer and the record arrays are reused, after each {@link #next()} the public fields contain the current
+ * simulation.
+ *
+ * @author Pedro Henrique
+ */
+public class TraceReader implements Closeable {
+
+    /**
+     * The size of the file buffer.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The trace file channel.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The buffer of the file, refilled when empty.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * The current record bytes.
+     */
+    private byte[] record = new byte[256];
+
+    /**
+     * The position of the next byte of the current record.
+     */
+    private int position;
+
+    /**
+     * The estimator description of the current simulation.
+     */
+    public String estimator;
+
+    /**
+     * The tag count of the current simulation.
+     */
+    public int tagCount;
+
+    /**
+     * The seed of the current simulation.
+     */
+    public long seed;
+
+    /**
+     * The number of frames of the current simulation.
+     */
+    public int frames;
+
+    /**
+     * The frames of the current simulation, only the first {@link #frames} are valid.
+     */
+    public int[] frameSizes = new int[64], idle = new int[64], success = new int[64], collision = new int[64];
+
+    /**
+     * Opens a trace file.
+     *
+     * @param file the trace file
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a trace file or its version is not supported
+     */
+    public TraceReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        buffer.limit(0);
+        try {
+            if (!fill(8) || buffer.getInt() != TraceWriter.MAGIC) {
+                throw new IllegalArgumentException("Not a trace file: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != TraceWriter.VERSION) {
+                throw new IllegalArgumentException("Unsupported trace version " + version + ": " + file);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next simulation record.
+     *
+     * @return false if the trace has no more simulations
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the record is corrupted
+     */
+    public boolean next() throws IOException {
+        if (!fill(1)) {
+            return false;
+        }
+
+        // Reading the record length and bytes
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift > 28 || !fill(1)) {
+                throw new IllegalArgumentException("Corrupted trace record length");
+            }
+            byte b = buffer.get();
+            length |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("Corrupted trace record length");
+        }
+        if (record.length < length) {
+            record = new byte[Math.max(length, record.length * 2)];
+        }
+        for (int offset = 0; offset < length; ) {
+            if (!fill(1)) {
+                throw new IllegalArgumentException("Truncated trace record");
+            }
+            int count = Math.min(buffer.remaining(), length - offset);
+            buffer.get(record, offset, count);
+            offset += count;
+        }
+
+        // Decoding the record
+        position = 0;
+        int descriptionLength = getVarint(length);
+        if (descriptionLength > length - position) {
+            throw new IllegalArgumentException("Corrupted trace record");
+        }
+        estimator = new String(record, position, descriptionLength, StandardCharsets.UTF_8);
+        position += descriptionLength;
+        tagCount = getVarint(length);
+        long zigzagSeed = getVarlong(length);
+        seed = (zigzagSeed >>> 1) ^ -(zigzagSeed & 1);
+        frames = 0;
+        int frameSize = 0;
+        while (position < length) {
+            if (frames == frameSizes.length) {
+                frameSizes = Arrays.copyOf(frameSizes, frames * 2);
+                idle = Arrays.copyOf(idle, frames * 2);
+                success = Arrays.copyOf(success, frames * 2);
+                collision = Arrays.copyOf(collision, frames * 2);
+            }
+            int zigzagDelta = getVarint(length);
+            frameSize += (zigzagDelta >>> 1) ^ -(zigzagDelta & 1);
+            frameSizes[frames] = frameSize;
+            idle[frames] = getVarint(length);
+            success[frames] = getVarint(length);
+            collision[frames] = getVarint(length);
+            frames++;
+        }
+        return true;
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Refills the buffer if it has less than the received number of bytes.
+     *
+     * @param bytes the number of bytes, lesser or equal to the buffer size
+     * @return false if the file ends before the bytes
+     * @throws IOException if the file cannot be read
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= bytes;
+    }
+
+    /**
+     * Reads an unsigned varint of the current record.
+     *
+     * @param length the record length
+     * @return the value
+     * @throws IllegalArgumentException if the varint exceeds the record
+     */
+    private int getVarint(int length) {
+        int value = 0;
+        for (int shift = 0; shift <= 28 && position < length; shift += 7) {
+            byte b = record[position++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupted trace record");
+    }
+
+    /**
+     * Reads an unsigned varlong of the current record.
+     *
+     * @param length the record length
+     * @return the value
+     * @throws IllegalArgumentException if the varlong exceeds the record
+     */
+    private long getVarlong(int length) {
+        long value = 0;
+        for (int shift = 0; shift <= 63 && position < length; shift += 7) {
+            byte b = record[position++];
+            value |= (b & 0x7FL) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupted trace record");
+    }
+}
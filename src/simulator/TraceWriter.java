@@ -0,0 +1,260 @@
+package simulator;
+
+import estimator.Estimator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Writes the frames of simulations in a compact binary trace file. Each thread records its simulations with its own
+ * {@link #recorder()}, that encodes the frames in a reusable array, so the frames do not allocate memory. When a
+ * simulation finishes its record is appended to the file, through a direct buffer flushed to the file channel.
+ * <p>
+ * The file starts with the magic number and the format version (ints), followed by the simulation records. A record
+ * starts with its length in bytes, followed by the estimator description ({@link Estimator#toString()}) as its UTF-8
+ * length and bytes, the tag count, the seed and the frames until the end of the record. Each frame has the frame size
+ * difference from the previous frame (the first frame from 0) and the idle, success and collision slots. All numbers
+ * are varints (7 bits per byte, least significant first), the seed and the frame size differences are zigzag encoded.
+ * The records of different threads are interleaved.
+ *
+ * @author Pedro Henrique
+ */
+public class TraceWriter implements Closeable {
+
+    /**
+     * The magic number of the trace files ("DFST").
+     */
+    public static final int MAGIC = 0x44465354;
+
+    /**
+     * The trace file format version.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The size of the file buffer.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The trace file channel.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The buffer of the file, flushed when full.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * The recorder of each thread.
+     */
+    private final ThreadLocal<Recorder> recorders = ThreadLocal.withInitial(() -> new Recorder());
+
+    /**
+     * The number of written simulations.
+     */
+    private long simulations;
+
+    /**
+     * Creates the trace file, an existing file is replaced.
+     *
+     * @param file the trace file
+     * @throws IOException if the file cannot be created
+     */
+    public TraceWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        buffer.putInt(MAGIC).putInt(VERSION);
+    }
+
+    /**
+     * Returns the trace recorder of the current thread.
+     *
+     * @return the trace recorder
+     */
+    public FrameTrace recorder() {
+        return recorders.get();
+    }
+
+    /**
+     * Returns the number of written simulations.
+     *
+     * @return the number of simulations
+     */
+    public synchronized long getSimulations() {
+        return simulations;
+    }
+
+    /**
+     * Appends a simulation record.
+     *
+     * @param record the record bytes
+     * @param length the record length
+     * @throws IOException if the record cannot be written
+     */
+    private synchronized void append(byte[] record, int length) throws IOException {
+        if (buffer.remaining() < 5) {
+            flush();
+        }
+        for (int value = length; ; value >>>= 7) {
+            if ((value & ~0x7F) == 0) {
+                buffer.put((byte) value);
+                break;
+            }
+            buffer.put((byte) (value & 0x7F | 0x80));
+        }
+        for (int offset = 0; offset < length; ) {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            int count = Math.min(buffer.remaining(), length - offset);
+            buffer.put(record, offset, count);
+            offset += count;
+        }
+        simulations++;
+    }
+
+    /**
+     * Writes the buffer in the file.
+     *
+     * @throws IOException if the buffer cannot be written
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the buffered records and closes the file.
+     *
+     * @throws IOException if the records cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Encodes a signed int with zigzag encoding, so small negative numbers are small varints.
+     *
+     * @param value the value
+     * @return the encoded value
+     */
+    public static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Encodes a signed long with zigzag encoding, so small negative numbers are small varints.
+     *
+     * @param value the value
+     * @return the encoded value
+     */
+    public static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * Records the simulations of a thread.
+     */
+    private class Recorder implements FrameTrace {
+
+        /**
+         * The current record, grows when needed.
+         */
+        private byte[] record = new byte[256];
+
+        /**
+         * The current record length.
+         */
+        private int length;
+
+        /**
+         * The size of the previous frame.
+         */
+        private int previousFrameSize;
+
+        @Override
+        public void simulationStarted(Estimator estimator, int tagCount, long seed) {
+            byte[] description = estimator.toString().getBytes(StandardCharsets.UTF_8);
+            length = 0;
+            previousFrameSize = 0;
+            ensureCapacity(description.length + 20);
+            putVarint(description.length);
+            System.arraycopy(description, 0, record, length, description.length);
+            length += description.length;
+            putVarint(tagCount);
+            putVarlong(zigzag(seed));
+        }
+
+        @Override
+        public void frame(int frameSize, int idle, int success, int collision) {
+            ensureCapacity(20);
+            putVarint(zigzag(frameSize - previousFrameSize));
+            putVarint(idle);
+            putVarint(success);
+            putVarint(collision);
+            previousFrameSize = frameSize;
+        }
+
+        @Override
+        public void simulationFinished(SimulationResult simulationResult) {
+            try {
+                append(record, length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Grows the record if it has not the received number of free bytes.
+         *
+         * @param bytes the number of bytes
+         */
+        private void ensureCapacity(int bytes) {
+            if (record.length - length < bytes) {
+                record = Arrays.copyOf(record, Math.max(record.length * 2, length + bytes));
+            }
+        }
+
+        /**
+         * Writes an unsigned varint, the capacity must be checked.
+         *
+         * @param value the value
+         */
+        private void putVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                record[length++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            record[length++] = (byte) value;
+        }
+
+        /**
+         * Writes an unsigned varlong, the capacity must be checked.
+         *
+         * @param value the value
+         */
+        private void putVarlong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                record[length++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            record[length++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package sweep;
+
+import simulator.SimulationStatistics.Counter;
+import simulator.Statistic;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the sweep points in csv format, one line per point.
+ *
+ * @author Pedro Henrique
+ */
+public class CsvResultWriter implements SweepResultWriter {
+
+    /**
+     * The names of the statistic columns, each one is written for all the counters.
+     */
+    private static final String[] columns = {"Mean", "Std", "Min", "P50", "P90", "P99", "Max"};
+
+    /**
+     * The output writer.
+     */
+    private final Writer writer;
+
+    /**
+     * Initializes the writer and writes the csv header.
+     *
+     * @param writer the output writer
+     * @throws IOException if an I/O error occurs
+     */
+    public CsvResultWriter(Writer writer) throws IOException {
+        this.writer = writer;
+        StringBuilder header = new StringBuilder("estimator,tagCount,simulations");
+        for (Counter counter : Counter.values()) {
+            for (String column : columns) {
+                header.append(',').append(counter.fieldName).append(column);
+            }
+        }
+        writer.write(header.append('\n').toString());
+    }
+
+    @Override
+    public void write(SweepPoint point) throws IOException {
+        StringBuilder line = new StringBuilder();
+        line.append('"').append(point.estimator.toString().replace("\"", "\"\"")).append('"')
+                .append(',').append(point.tagCount)
+                .append(',').append(point.simulations);
+        for (Counter counter : Counter.values()) {
+            Statistic statistic = point.statistics.get(counter);
+            line.append(',').append(statistic.mean())
+                    .append(',').append(statistic.standardDeviation())
+                    .append(',').append(statistic.min())
+                    .append(',').append(statistic.percentile(0.5))
+                    .append(',').append(statistic.percentile(0.9))
+                    .append(',').append(statistic.percentile(0.99))
+                    .append(',').append(statistic.max());
+        }
+        writer.write(line.append('\n').toString());
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
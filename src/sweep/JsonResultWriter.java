@@ -0,0 +1,75 @@
+package sweep;
+
+import simulator.SimulationStatistics.Counter;
+import simulator.Statistic;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes the sweep points as a json array, one object per point.
+ *
+ * @author Pedro Henrique
+ */
+public class JsonResultWriter implements SweepResultWriter {
+
+    /**
+     * The output writer.
+     */
+    private final Writer writer;
+
+    /**
+     * Indicates if a point was already written.
+     */
+    private boolean written;
+
+    /**
+     * Initializes the writer and opens the json array.
+     *
+     * @param writer the output writer
+     * @throws IOException if an I/O error occurs
+     */
+    public JsonResultWriter(Writer writer) throws IOException {
+        this.writer = writer;
+        writer.write("[");
+    }
+
+    @Override
+    public void write(SweepPoint point) throws IOException {
+        StringBuilder object = new StringBuilder(written ? ",\n" : "\n");
+        object.append("{\"estimator\":\"").append(point.estimator.toString().replace("\\", "\\\\").replace("\"", "\\\"")).append('"')
+                .append(",\"tagCount\":").append(point.tagCount)
+                .append(",\"simulations\":").append(point.simulations);
+        for (Counter counter : Counter.values()) {
+            appendStatistic(object, counter.fieldName, point.statistics.get(counter));
+        }
+        writer.write(object.append('}').toString());
+        writer.flush();
+        written = true;
+    }
+
+    /**
+     * Appends a statistic as a json object field.
+     *
+     * @param object    the json object being written
+     * @param name      the field name
+     * @param statistic the statistic
+     */
+    private static void appendStatistic(StringBuilder object, String name, Statistic statistic) {
+        object.append(",\"").append(name).append("\":{")
+                .append("\"mean\":").append(statistic.mean())
+                .append(",\"std\":").append(statistic.standardDeviation())
+                .append(",\"min\":").append(statistic.min())
+                .append(",\"p50\":").append(statistic.percentile(0.5))
+                .append(",\"p90\":").append(statistic.percentile(0.9))
+                .append(",\"p99\":").append(statistic.percentile(0.99))
+                .append(",\"max\":").append(statistic.max())
+                .append('}');
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.write("\n]\n");
+        writer.close();
+    }
+}
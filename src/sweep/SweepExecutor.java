@@ -0,0 +1,496 @@
+package sweep;
+
+import estimator.Estimator;
+import simulator.FrameTrace;
+import simulator.LockstepSimulator;
+import simulator.OccupancySimulator;
+import simulator.SimulationResult;
+import simulator.SimulationStatistics;
+import simulator.Simulator;
+import simulator.TraceWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executes a sweep in a fork join pool. The whole grid of simulations (estimator x tag count x run) is divided in
+ * chunks of {@link #CHUNK_SIZE} runs of the same point, the chunks are split in work stealing tasks. Each chunk
+ * accumulates its results in statistics that are merged in the point statistics as soon as the previous chunks of the
+ * point are merged, so the merge order does not depend on the number of threads and each point keeps only its
+ * statistics and the chunks that finished before a previous chunk. The point is completed by the thread that merges
+ * its last chunk. The points are returned and published in the estimator and tag count order, independent of the
+ * number of threads.
+ * <p>
+ * Each simulation uses a seed derived from the sweep seed, so the results are the same with any number of threads
+ * (except the execution times).
+ * <p>
+ * In adaptive sweeps each point is a single chunk, its simulations run in batches of {@link #CHUNK_SIZE} until the
+ * target precision or the max number of simulations is reached.
+ * <p>
+ * In lockstep sweeps the runs of each chunk (or batch) of the simple estimators are simulated together with the
+ * {@link LockstepSimulator}, with the same seeds, so the results are the same.
+ * <p>
+ * If a {@link TraceWriter} is received the frames of all simulations are traced, the traced sweeps are not simulated
+ * in lockstep.
+ * <p>
+ * If a {@link SweepJournal} is received the points restored from it are not simulated, they are published with the
+ * simulated points, and each simulated point is appended to the journal before it is published.
+ * <p>
+ * The progress can be read from any thread while the sweep runs, and the sweep can be cancelled, the chunks not yet
+ * started are skipped and the adaptive points stop after the current batch.
+ *
+ * @author Pedro Henrique
+ */
+public class SweepExecutor {
+
+    /**
+     * The number of runs of each chunk, it does not depend on the number of threads, so the chunk statistics are
+     * always merged in the same way.
+     */
+    private static final int CHUNK_SIZE = 16;
+
+    /**
+     * Receives the completed sweep points.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a point is completed, the points are received in the estimator and tag count order, one at a
+         * time.
+         *
+         * @param index the point index
+         * @param point the completed point
+         */
+        void pointCompleted(int index, SweepPoint point);
+    }
+
+    /**
+     * The sweep spec.
+     */
+    private final SweepSpec spec;
+
+    /**
+     * The number of tag counts, runs and chunks of each point.
+     */
+    private final int tagCounts, runs, pointChunks;
+
+    /**
+     * The number of chunks of the sweep.
+     */
+    private final int sweepChunks;
+
+    /**
+     * The chunk merge of each point.
+     */
+    private final PointMerge[] merges;
+
+    /**
+     * The completed points, indexed by estimator and tag count.
+     */
+    private final SweepPoint[] points;
+
+    /**
+     * The index of the next point to publish.
+     */
+    private int nextPublishedPoint;
+
+    /**
+     * Indicates if a thread is sending the completed points to the listener.
+     */
+    private boolean publishing;
+
+    /**
+     * The points listener.
+     */
+    private Listener listener;
+
+    /**
+     * The trace writer, can be null.
+     */
+    private final TraceWriter traceWriter;
+
+    /**
+     * The sweep journal, can be null.
+     */
+    private final SweepJournal journal;
+
+    /**
+     * The number of finished chunks.
+     */
+    private final AtomicInteger completedChunks = new AtomicInteger();
+
+    /**
+     * The number of finished simulations.
+     */
+    private final LongAdder simulations = new LongAdder();
+
+    /**
+     * Indicates if the sweep was cancelled.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Initializes the executor with the received sweep spec.
+     *
+     * @param spec the sweep spec
+     */
+    public SweepExecutor(SweepSpec spec) {
+        this(spec, null);
+    }
+
+    /**
+     * Initializes the executor with the received sweep spec, the frames of all simulations are written in the trace
+     * writer.
+     *
+     * @param spec        the sweep spec
+     * @param traceWriter the trace writer, can be null
+     */
+    public SweepExecutor(SweepSpec spec, TraceWriter traceWriter) {
+        this(spec, traceWriter, null);
+    }
+
+    /**
+     * Initializes the executor with the received sweep spec, the points restored from the journal are not simulated
+     * and the simulated points are appended to it. The journal must be opened before, it can change the spec seed.
+     *
+     * @param spec        the sweep spec
+     * @param traceWriter the trace writer, can be null
+     * @param journal     the sweep journal, can be null
+     */
+    public SweepExecutor(SweepSpec spec, TraceWriter traceWriter, SweepJournal journal) {
+        this.spec = spec;
+        this.traceWriter = traceWriter;
+        this.journal = journal;
+        tagCounts = spec.tagCounts();
+        runs = spec.simulationsPerCount;
+        pointChunks = spec.isAdaptive() ? 1 : (runs + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        points = new SweepPoint[spec.estimators.size() * tagCounts];
+        sweepChunks = points.length * pointChunks;
+        merges = new PointMerge[points.length];
+        for (int i = 0; i < points.length; i++) {
+            merges[i] = new PointMerge();
+            if (isRestored(i)) {
+                completedChunks.addAndGet(pointChunks);
+            }
+        }
+    }
+
+    /**
+     * Executes the sweep, this method blocks until all points are completed and can be called only once.
+     *
+     * @param listener the points listener, can be null
+     * @return the points, ordered by estimator and tag count
+     * @throws CancellationException if the sweep is cancelled, the completed points were already published
+     * @throws UncheckedIOException  if a point cannot be appended to the journal
+     */
+    public SweepPoint[] execute(Listener listener) {
+        this.listener = listener;
+        if (journal != null) {
+            for (int i = 0; i < points.length; i++) {
+                if (journal.getPoint(i) != null) {
+                    publish(i, journal.getPoint(i));
+                }
+            }
+        }
+        ForkJoinPool pool = new ForkJoinPool(spec.threads);
+        try {
+            int leafSize = Math.max(1, sweepChunks / (spec.threads * 8));
+            pool.invoke(new SimulationTask(0, sweepChunks, leafSize));
+        } finally {
+            pool.shutdown();
+        }
+        if (cancelled) {
+            throw new CancellationException("The sweep was cancelled");
+        }
+        return points;
+    }
+
+    /**
+     * Cancels the sweep, it can be called from any thread. The running simulations are finished, so
+     * {@link #execute(Listener)} returns shortly after.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Returns true if the sweep was cancelled.
+     *
+     * @return true if the sweep was cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns the fraction of finished chunks, between 0 and 1. In adaptive sweeps each point is a single chunk.
+     *
+     * @return the sweep progress
+     */
+    public double getProgress() {
+        return sweepChunks == 0 ? 1 : (double) completedChunks.get() / sweepChunks;
+    }
+
+    /**
+     * Returns the number of finished simulations.
+     *
+     * @return the number of simulations
+     */
+    public long getSimulations() {
+        return simulations.sum();
+    }
+
+    /**
+     * Runs the simulations of the received chunk and merges it in its point.
+     *
+     * @param chunk the chunk index
+     */
+    private void simulate(int chunk) {
+        if (cancelled) {
+            return;
+        }
+        int point = chunk / pointChunks;
+        if (isRestored(point)) {
+            return;
+        }
+        int firstRun = chunk % pointChunks * CHUNK_SIZE;
+        int lastRun = spec.isAdaptive() ? runs : Math.min(firstRun + CHUNK_SIZE, runs);
+        int estimatorIndex = point / tagCounts;
+        int tagCount = spec.tagCount(point % tagCounts);
+        SimulationStatistics statistics = new SimulationStatistics();
+        while (true) {
+            if (isLockstep(estimatorIndex)) {
+                for (SimulationResult result : simulate(spec, estimatorIndex, tagCount, firstRun, lastRun)) {
+                    statistics.add(result);
+                }
+            } else {
+                FrameTrace trace = traceWriter != null ? traceWriter.recorder() : null;
+                for (int run = firstRun; run < lastRun; run++) {
+                    statistics.add(simulate(spec, estimatorIndex, tagCount, run, trace));
+                }
+            }
+            simulations.add(lastRun - firstRun);
+            if (cancelled) {
+                return;
+            }
+            if (!spec.isAdaptive() || lastRun >= spec.maxSimulationsPerCount || spec.isPrecise(statistics)) {
+                break;
+            }
+            firstRun = lastRun;
+            lastRun = Math.min(lastRun + CHUNK_SIZE, spec.maxSimulationsPerCount);
+        }
+        completedChunks.incrementAndGet();
+
+        SweepPoint sweepPoint = merges[point].merge(chunk % pointChunks, statistics, pointChunks);
+        if (sweepPoint != null) {
+            if (journal != null) {
+                try {
+                    journal.append(point, sweepPoint);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            publish(point, sweepPoint);
+        }
+    }
+
+    /**
+     * Runs a simulation of the sweep with its derived seed, see {@link SweepSpec#runSeed(int, int, int)}.
+     *
+     * @param spec           the sweep spec
+     * @param estimatorIndex the estimator index in the spec
+     * @param tagCount       the tag count
+     * @param run            the run index
+     * @return the simulation result
+     */
+    public static SimulationResult simulate(SweepSpec spec, int estimatorIndex, int tagCount, int run) {
+        return simulate(spec, estimatorIndex, tagCount, run, null);
+    }
+
+    /**
+     * Runs a simulation of the sweep with its derived seed, the frames are sent to the received trace.
+     *
+     * @param spec           the sweep spec
+     * @param estimatorIndex the estimator index in the spec
+     * @param tagCount       the tag count
+     * @param run            the run index
+     * @param trace          the trace that receives the frames, can be null
+     * @return the simulation result
+     */
+    public static SimulationResult simulate(SweepSpec spec, int estimatorIndex, int tagCount, int run, FrameTrace trace) {
+        Estimator estimator = spec.estimators.get(estimatorIndex).copy();
+        long seed = spec.runSeed(estimatorIndex, tagCount, run);
+        return spec.occupancy
+                ? OccupancySimulator.simulate(estimator, tagCount, seed, trace)
+                : Simulator.simulate(estimator, tagCount, seed, trace);
+    }
+
+    /**
+     * Simulates a range of runs of an estimator and tag count together with the {@link LockstepSimulator}, each run
+     * uses its {@link SweepSpec#runSeed(int, int, int)}.
+     *
+     * @param spec           the sweep spec
+     * @param estimatorIndex the estimator index in the spec
+     * @param tagCount       the tag count
+     * @param firstRun       the first run
+     * @param lastRun        the last run (exclusive)
+     * @return the simulation results, in the runs order
+     */
+    public static SimulationResult[] simulate(SweepSpec spec, int estimatorIndex, int tagCount, int firstRun, int lastRun) {
+        Estimator estimator = spec.estimators.get(estimatorIndex).copy();
+        long[] seeds = new long[lastRun - firstRun];
+        for (int run = firstRun; run < lastRun; run++) {
+            seeds[run - firstRun] = spec.runSeed(estimatorIndex, tagCount, run);
+        }
+        return LockstepSimulator.simulate(estimator, tagCount, seeds);
+    }
+
+    /**
+     * Returns true if the point was restored from the journal, so it is not simulated.
+     *
+     * @param point the point index
+     * @return true if the point was restored
+     */
+    private boolean isRestored(int point) {
+        return journal != null && journal.getPoint(point) != null;
+    }
+
+    /**
+     * Returns true if the runs of the estimator are simulated in lockstep, only the simple estimators are simulated in
+     * lockstep, and not with the occupancy simulator.
+     *
+     * @param estimatorIndex the estimator index in the spec
+     * @return true if the runs are simulated in lockstep
+     */
+    private boolean isLockstep(int estimatorIndex) {
+        return spec.lockstep && !spec.occupancy && traceWriter == null && spec.estimators.get(estimatorIndex).getType() == Estimator.Type.SIMPLE_DFSA;
+    }
+
+    /**
+     * Saves the completed point and sends to the listener all the completed points not yet published, in order. The
+     * lock is held only to save and take the points, a single thread at a time sends them outside the lock, the
+     * threads that complete points while it sends return after saving them. If the listener throws, no more points
+     * are sent.
+     *
+     * @param index the point index
+     * @param point the completed point
+     */
+    private void publish(int index, SweepPoint point) {
+        synchronized (this) {
+            points[index] = point;
+            if (publishing) {
+                return;
+            }
+            publishing = true;
+        }
+        while (true) {
+            int next;
+            synchronized (this) {
+                if (nextPublishedPoint == points.length || points[nextPublishedPoint] == null) {
+                    publishing = false;
+                    return;
+                }
+                next = nextPublishedPoint++;
+            }
+            if (listener != null) {
+                listener.pointCompleted(next, points[next]);
+            }
+        }
+    }
+
+    /**
+     * Merges the chunk statistics of a point in the chunks order. The chunks that finish before a previous chunk wait
+     * in the pending chunks until the previous chunks are merged.
+     */
+    private static class PointMerge {
+
+        /**
+         * The statistics of the merged chunks.
+         */
+        private final SimulationStatistics statistics = new SimulationStatistics();
+
+        /**
+         * The number of merged chunks, the next merged chunk index.
+         */
+        private int mergedChunks;
+
+        /**
+         * The finished chunks not yet merged, indexed by the chunk index in the point, created when needed.
+         */
+        private Map<Integer, SimulationStatistics> pendingChunks;
+
+        /**
+         * Merges a finished chunk and the pending chunks that follow it, the lock is held only while merging.
+         *
+         * @param chunk       the chunk index in the point
+         * @param statistics  the chunk statistics
+         * @param pointChunks the number of chunks of the point
+         * @return the completed point if all chunks are merged, otherwise null
+         */
+        private synchronized SweepPoint merge(int chunk, SimulationStatistics statistics, int pointChunks) {
+            if (chunk != mergedChunks) {
+                if (pendingChunks == null) {
+                    pendingChunks = new HashMap<>();
+                }
+                pendingChunks.put(chunk, statistics);
+                return null;
+            }
+            while (statistics != null) {
+                this.statistics.merge(statistics);
+                mergedChunks++;
+                statistics = pendingChunks != null ? pendingChunks.remove(mergedChunks) : null;
+            }
+            return mergedChunks == pointChunks ? new SweepPoint(this.statistics) : null;
+        }
+    }
+
+    /**
+     * Simulates a range of chunks, the range is split until it reaches the leaf size.
+     */
+    private class SimulationTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The range of chunks, end exclusive.
+         */
+        private final int start, end;
+
+        /**
+         * The max number of chunks executed without splitting.
+         */
+        private final int leafSize;
+
+        /**
+         * Initializes the task with the received range.
+         *
+         * @param start    the first chunk
+         * @param end      the last chunk (exclusive)
+         * @param leafSize the max number of chunks executed without splitting
+         */
+        private SimulationTask(int start, int end, int leafSize) {
+            this.start = start;
+            this.end = end;
+            this.leafSize = leafSize;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= leafSize) {
+                for (int chunk = start; chunk < end; chunk++) {
+                    simulate(chunk);
+                }
+            } else {
+                int middle = (start + end) >>> 1;
+                invokeAll(new SimulationTask(start, middle, leafSize), new SimulationTask(middle, end, leafSize));
+            }
+        }
+    }
+}
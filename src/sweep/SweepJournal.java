@@ -0,0 +1,272 @@
+package sweep;
+
+import simulator.SimulationStatistics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Durable journal of the completed points of a sweep, so an interrupted sweep can be restarted without simulating the
+ * completed points again. Each completed point is appended to the file and forced to the disk before it is published.
+ * When the journal is opened the points of the same sweep (same {@link SweepSpec#fingerprint()}) are restored, and
+ * the sweep seed is set to the seed of the journal, so the restored and the new points belong to the same sweep.
+ * <p>
+ * The file starts with the magic number and the format version (ints), followed by the point records. A record has
+ * the payload length (int), the payload and its CRC32 (int). The payload has the sweep fingerprint and seed (longs),
+ * the point index (int), the estimator description (modified UTF-8), and the point statistics, see
+ * {@link SimulationStatistics#write(java.io.DataOutput)}. A record interrupted by a crash is detected by its length or
+ * CRC32, the file is truncated before it.
+ *
+ * @author Pedro Henrique
+ */
+public class SweepJournal implements Closeable {
+
+    /**
+     * The magic number of the journal files ("DFSJ").
+     */
+    public static final int MAGIC = 0x4446534A;
+
+    /**
+     * The journal file format version.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The max payload length of a record, longer records are corrupted.
+     */
+    private static final int MAX_RECORD_LENGTH = 1 << 24;
+
+    /**
+     * The journal file channel.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The sweep spec.
+     */
+    private final SweepSpec spec;
+
+    /**
+     * The sweep fingerprint.
+     */
+    private final long fingerprint;
+
+    /**
+     * The restored points, indexed by estimator and tag count, the points not in the journal are null.
+     */
+    private final SweepPoint[] points;
+
+    /**
+     * The number of restored points.
+     */
+    private int restoredPoints;
+
+    /**
+     * Opens or creates the journal of the received sweep and restores its completed points. If the journal has points
+     * of the sweep, the spec seed is replaced with the journal seed.
+     *
+     * @param file the journal file
+     * @param spec the sweep spec
+     * @throws IOException              if the file cannot be read or written
+     * @throws IllegalArgumentException if the file is not a journal file or its version is not supported
+     */
+    public SweepJournal(Path file, SweepSpec spec) throws IOException {
+        this.spec = spec;
+        fingerprint = spec.fingerprint();
+        points = new SweepPoint[spec.estimators.size() * spec.tagCounts()];
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < 8) {
+                channel.truncate(0);
+                write(ByteBuffer.allocate(8).putInt(MAGIC).putInt(VERSION));
+            } else {
+                restore(file);
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the restored point with the received index.
+     *
+     * @param index the point index
+     * @return the restored point, or null if the point is not in the journal
+     */
+    public SweepPoint getPoint(int index) {
+        return points[index];
+    }
+
+    /**
+     * Returns the number of restored points.
+     *
+     * @return the number of restored points
+     */
+    public int getRestoredPoints() {
+        return restoredPoints;
+    }
+
+    /**
+     * Appends a completed point and forces it to the disk.
+     *
+     * @param index the point index
+     * @param point the completed point
+     * @throws IOException if the point cannot be written
+     */
+    public synchronized void append(int index, SweepPoint point) throws IOException {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(1024);
+        DataOutputStream output = new DataOutputStream(payload);
+        output.writeLong(fingerprint);
+        output.writeLong(spec.seed);
+        output.writeInt(index);
+        output.writeUTF(point.estimator.toString());
+        point.statistics.write(output);
+        output.flush();
+
+        byte[] bytes = payload.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        ByteBuffer record = ByteBuffer.allocate(bytes.length + 8);
+        record.putInt(bytes.length).put(bytes).putInt((int) crc.getValue());
+        write(record);
+        channel.force(false);
+    }
+
+    /**
+     * Closes the file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Reads the journal records and restores the points of the sweep, the file is truncated after the last valid
+     * record.
+     *
+     * @param file the journal file, used in the error messages
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a journal file or its version is not supported
+     */
+    private void restore(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(8);
+        read(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a sweep journal: " + file);
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported journal version " + version + ": " + file);
+        }
+
+        long position = 8;
+        long size = channel.size();
+        boolean seedRestored = false;
+        ByteBuffer length = ByteBuffer.allocate(4);
+        while (size - position >= 4) {
+            length.clear();
+            read(length, position);
+            int payloadLength = length.getInt(0);
+            if (payloadLength < 0 || payloadLength > MAX_RECORD_LENGTH || size - position - 8 < payloadLength) {
+                break;
+            }
+            ByteBuffer record = ByteBuffer.allocate(payloadLength + 4);
+            read(record, position + 4);
+            byte[] bytes = record.array();
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, payloadLength);
+            if (record.getInt(payloadLength) != (int) crc.getValue()) {
+                break;
+            }
+            position += payloadLength + 8;
+
+            DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes, 0, payloadLength));
+            if (input.readLong() != fingerprint) {
+                continue;
+            }
+            long seed = input.readLong();
+            if (!seedRestored) {
+                spec.seed = seed;
+                seedRestored = true;
+            } else if (seed != spec.seed) {
+                continue;
+            }
+            restore(input);
+        }
+        if (position < size) {
+            channel.truncate(position);
+        }
+        channel.position(position);
+    }
+
+    /**
+     * Restores the point of a record of the sweep, the point is ignored if its estimator or tag count are not the spec
+     * ones.
+     *
+     * @param input the record payload after the seed
+     * @throws IOException if the record is corrupted
+     */
+    private void restore(DataInputStream input) throws IOException {
+        int index = input.readInt();
+        String estimator = input.readUTF();
+        if (index < 0 || index >= points.length) {
+            return;
+        }
+        int tagCounts = spec.tagCounts();
+        int estimatorIndex = index / tagCounts;
+        if (!estimator.equals(spec.estimators.get(estimatorIndex).toString())) {
+            return;
+        }
+        SimulationStatistics statistics = SimulationStatistics.read(input, spec.estimators.get(estimatorIndex));
+        if (statistics.tagCount != spec.tagCount(index % tagCounts) || statistics.count() == 0) {
+            return;
+        }
+        if (points[index] == null) {
+            restoredPoints++;
+        }
+        points[index] = new SweepPoint(statistics);
+    }
+
+    /**
+     * Reads the file at the received position until the buffer is full.
+     *
+     * @param buffer   the buffer
+     * @param position the file position
+     * @throws IOException if the file cannot be read or ends before the buffer is full
+     */
+    private void read(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int count = channel.read(buffer, position);
+            if (count < 0) {
+                throw new IOException("Unexpected end of the journal");
+            }
+            position += count;
+        }
+    }
+
+    /**
+     * Writes the buffer at the end of the file.
+     *
+     * @param buffer the buffer, flipped by this method
+     * @throws IOException if the buffer cannot be written
+     */
+    private void write(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package sweep;
+
+import estimator.Estimator;
+import simulator.SimulationResult;
+import simulator.SimulationStatistics;
+
+/**
+ * Stores the aggregated results of all simulations of an estimator with a tag count.
+ *
+ * @author Pedro Henrique
+ */
+public class SweepPoint {
+
+    /**
+     * The simulated estimator.
+     */
+    public final Estimator estimator;
+
+    /**
+     * The simulated tag count.
+     */
+    public final int tagCount;
+
+    /**
+     * The number of simulations.
+     */
+    public final int simulations;
+
+    /**
+     * The statistics of all simulations.
+     */
+    public final SimulationStatistics statistics;
+
+    /**
+     * The average, min and max simulation results.
+     */
+    public final SimulationResult average, min, max;
+
+    /**
+     * Initializes the point with the received statistics, at least one simulation is expected.
+     *
+     * @param statistics the statistics of the simulations of the same estimator and tag count
+     */
+    public SweepPoint(SimulationStatistics statistics) {
+        this.statistics = statistics;
+        estimator = statistics.estimator;
+        tagCount = statistics.tagCount;
+        simulations = statistics.count();
+        average = statistics.average();
+        min = statistics.min();
+        max = statistics.max();
+    }
+}
@@ -0,0 +1,20 @@
+package sweep;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Interface for sweep result writers, the points are written as soon as they are calculated.
+ *
+ * @author Pedro Henrique
+ */
+public interface SweepResultWriter extends Closeable {
+
+    /**
+     * Writes a sweep point.
+     *
+     * @param point the sweep point
+     * @throws IOException if an I/O error occurs
+     */
+    void write(SweepPoint point) throws IOException;
+}
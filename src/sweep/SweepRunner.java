@@ -0,0 +1,143 @@
+package sweep;
+
+import estimator.CachedEstimator;
+import estimator.Estimator;
+import simulator.SimulationStatistics;
+import simulator.TraceWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+/**
+ * Headless sweep runner, simulates the estimators without the GUI and writes the results in csv or json.
+ * <p>
+ * Arguments:
+ * <pre>
+ * -e, -estimator NAME[:PARAM...]  estimator to simulate, can be repeated (e.g. Chen:64, EomLee:64:0.001, QAlgorithm:6:0.1)
+ * -table FILE                     uses the precomputed frame sizes of the previous estimator, see TableGenerator
+ * -from N                         initial tag count (default 100)
+ * -to N                           max tag count (default 1000)
+ * -step N                         tag count increment (default 100)
+ * -runs N                         simulations per tag count, min simulations in adaptive sweeps (default 10)
+ * -precision P                    adaptive sweep, runs until the confidence interval half width is lesser than P times
+ *                                 the metric mean (e.g. 0.01)
+ * -confidence C                   confidence level of adaptive sweeps (default 0.95)
+ * -maxruns N                      max simulations per tag count in adaptive sweeps (default 1000)
+ * -metric NAME                    result field checked in adaptive sweeps (default createdSlots)
+ * -seed N                         sweep seed, the same seed reproduces the results (default random)
+ * -replay TAGCOUNT:RUN            replays only the simulation of the tag count and run of each estimator
+ * -threads N                      number of threads (default available processors)
+ * -occupancy                      simulates simple estimators with the occupancy simulator
+ * -lockstep                       simulates the runs of each chunk of the simple estimators together
+ * -cache N                        caches up to N frame sizes of each pure simple estimator (not EomLee), shared by all
+ *                                 threads
+ * -trace FILE                     writes the frames of all simulations in a binary trace file, see TraceWriter
+ * -journal FILE                   appends the completed points to a journal, a restarted sweep with the same journal
+ *                                 and parameters skips the points in it and uses its seed, see SweepJournal
+ * -format csv|json                output format (default csv)
+ * -out FILE                       output file (default standard output)
+ * </pre>
+ *
+ * @author Pedro Henrique
+ */
+public class SweepRunner {
+
+    /**
+     * Prevents instantiation.
+     */
+    private SweepRunner() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        SweepSpec spec;
+        try {
+            spec = SweepSpec.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: SweepRunner -e NAME[:PARAM...] [-table FILE] [-e ...] [-from N] [-to N] [-step N] [-runs N] [-precision P] [-confidence C] [-maxruns N] [-metric NAME] [-seed N] [-replay TAGCOUNT:RUN] [-threads N] [-occupancy] [-lockstep] [-cache N] [-trace FILE] [-journal FILE] [-format csv|json] [-out FILE]");
+            System.exit(1);
+            return;
+        }
+
+        // The journal is opened before the seed is printed, the seed of a resumed sweep is the journal seed
+        SweepJournal journal = null;
+        if (spec.journal != null && spec.replayRun < 0) {
+            try {
+                journal = new SweepJournal(Paths.get(spec.journal), spec);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
+                return;
+            }
+            System.err.println("Journal points: " + journal.getRestoredPoints());
+        }
+        System.err.println("Sweep seed: " + spec.seed);
+
+        Writer output = new BufferedWriter(spec.output != null
+                ? new OutputStreamWriter(new FileOutputStream(spec.output), StandardCharsets.UTF_8)
+                : new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        try (SweepResultWriter writer = spec.format.equals("json") ? new JsonResultWriter(output) : new CsvResultWriter(output);
+             TraceWriter traceWriter = spec.trace != null ? new TraceWriter(Paths.get(spec.trace)) : null) {
+            if (spec.replayRun >= 0) {
+                replay(spec, writer, traceWriter);
+            } else {
+                run(spec, writer, traceWriter, journal);
+            }
+            if (traceWriter != null) {
+                System.err.println("Traced simulations: " + traceWriter.getSimulations());
+            }
+        } finally {
+            if (journal != null) {
+                journal.close();
+            }
+        }
+
+        for (Estimator estimator : spec.estimators) {
+            if (estimator instanceof CachedEstimator) {
+                System.err.println(estimator + " cache: " + ((CachedEstimator) estimator).getCache());
+            }
+        }
+    }
+
+    /**
+     * Replays a single simulation of each estimator, the replay tag count and run of the spec are used.
+     *
+     * @param spec        the sweep spec
+     * @param writer      the result writer
+     * @param traceWriter the trace writer, can be null
+     * @throws IOException if an I/O error occurs
+     */
+    public static void replay(SweepSpec spec, SweepResultWriter writer, TraceWriter traceWriter) throws IOException {
+        for (int estimator = 0; estimator < spec.estimators.size(); estimator++) {
+            SimulationStatistics statistics = new SimulationStatistics();
+            statistics.add(SweepExecutor.simulate(spec, estimator, spec.replayTagCount, spec.replayRun,
+                    traceWriter != null ? traceWriter.recorder() : null));
+            writer.write(new SweepPoint(statistics));
+        }
+    }
+
+    /**
+     * Runs the sweep with a {@link SweepExecutor}, the points are written in the estimator and tag count order, the
+     * points restored from the journal included.
+     *
+     * @param spec        the sweep spec
+     * @param writer      the result writer
+     * @param traceWriter the trace writer, can be null
+     * @param journal     the sweep journal, can be null
+     * @throws IOException if an I/O error occurs
+     */
+    public static void run(SweepSpec spec, SweepResultWriter writer, TraceWriter traceWriter, SweepJournal journal) throws IOException {
+        try {
+            new SweepExecutor(spec, traceWriter, journal).execute((index, point) -> {
+                try {
+                    writer.write(point);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
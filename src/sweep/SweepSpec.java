@@ -0,0 +1,438 @@
+package sweep;
+
+import estimator.*;
+import simulator.RandomStream;
+import simulator.SimulationStatistics;
+import simulator.SimulationStatistics.Counter;
+import simulator.Statistic;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stores the parameters of a sweep, the estimators are simulated with every tag count between the initial and max tag
+ * count.
+ *
+ * @author Pedro Henrique
+ */
+public class SweepSpec {
+
+    /**
+     * The estimators to simulate.
+     */
+    public List<Estimator> estimators = new ArrayList<>();
+
+    /**
+     * The first tag count.
+     */
+    public int initialTagCount = 100;
+
+    /**
+     * The last tag count (inclusive).
+     */
+    public int maxTagCount = 1000;
+
+    /**
+     * The tag count increment.
+     */
+    public int tagCountIncrement = 100;
+
+    /**
+     * The number of simulations of each estimator and tag count, in adaptive sweeps it is the min number of
+     * simulations.
+     */
+    public int simulationsPerCount = 10;
+
+    /**
+     * The target half width of the confidence interval of the precision counter mean, relative to the mean. If greater
+     * than 0, the sweep is adaptive, the simulations of each point continue until the target or
+     * {@link #maxSimulationsPerCount} is reached.
+     */
+    public double targetPrecision;
+
+    /**
+     * The confidence level of the adaptive sweeps.
+     */
+    public double confidence = 0.95;
+
+    /**
+     * The max number of simulations of each estimator and tag count in adaptive sweeps.
+     */
+    public int maxSimulationsPerCount = 1000;
+
+    /**
+     * The counter whose confidence interval is checked in adaptive sweeps.
+     */
+    public Counter precisionCounter = Counter.CREATED_SLOTS;
+
+    /**
+     * The sweep seed, the seed of each simulation is derived from it, see {@link #runSeed(int, int, int)}.
+     */
+    public long seed = ThreadLocalRandom.current().nextLong();
+
+    /**
+     * The number of threads used to simulate.
+     */
+    public int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Indicates if the simple estimators are simulated with the {@link simulator.OccupancySimulator}.
+     */
+    public boolean occupancy;
+
+    /**
+     * Indicates if the runs of each chunk of the simple estimators are simulated together with the
+     * {@link simulator.LockstepSimulator}.
+     */
+    public boolean lockstep;
+
+    /**
+     * The capacity of the frame size cache of each pure simple estimator, if 0 the estimators are not cached. See
+     * {@link CachedEstimator}.
+     */
+    public int cacheCapacity;
+
+    /**
+     * The tag count and run replayed with each estimator, if the replay run is negative the whole sweep is executed.
+     */
+    public int replayTagCount, replayRun = -1;
+
+    /**
+     * The trace file path, if not null the frames of all simulations are written in it, see
+     * {@link simulator.TraceWriter}.
+     */
+    public String trace;
+
+    /**
+     * The journal file path, if not null the completed points are appended to it and the points already in it are not
+     * simulated again, see {@link SweepJournal}.
+     */
+    public String journal;
+
+    /**
+     * The output format, csv or json.
+     */
+    public String format = "csv";
+
+    /**
+     * The output file path, if null the results are written in the standard output.
+     */
+    public String output;
+
+    /**
+     * Returns the number of tag counts of the sweep.
+     *
+     * @return the number of tag counts
+     */
+    public int tagCounts() {
+        return maxTagCount < initialTagCount ? 0 : (maxTagCount - initialTagCount) / tagCountIncrement + 1;
+    }
+
+    /**
+     * Returns the seed of a simulation, it depends only on the sweep seed and the simulation estimator, tag count and
+     * run, so the results do not depend on the number of threads and any simulation can be replayed alone.
+     *
+     * @param estimatorIndex the estimator index in {@link #estimators}
+     * @param tagCount       the tag count
+     * @param run            the run index of the estimator and tag count
+     * @return the simulation seed
+     */
+    public long runSeed(int estimatorIndex, int tagCount, int run) {
+        return RandomStream.seed(RandomStream.seed(RandomStream.seed(seed, estimatorIndex), tagCount), run);
+    }
+
+    /**
+     * Returns true if the sweep is adaptive, see {@link #targetPrecision}.
+     *
+     * @return true if the sweep is adaptive
+     */
+    public boolean isAdaptive() {
+        return targetPrecision > 0;
+    }
+
+    /**
+     * Returns true if the statistics reached the target precision, at least two simulations are needed.
+     *
+     * @param statistics the point statistics
+     * @return true if the target precision is reached
+     */
+    public boolean isPrecise(SimulationStatistics statistics) {
+        Statistic statistic = statistics.get(precisionCounter);
+        return statistic.confidenceHalfWidth(confidence) <= targetPrecision * Math.abs(statistic.mean());
+    }
+
+    /**
+     * Returns a fingerprint of the parameters that define the sweep points, two sweeps with the same fingerprint and
+     * seed produce the same points. The cache capacity is included, the cached frames do not count iterations. The
+     * seed, threads, trace, journal and output parameters are not included, they do not change the points.
+     *
+     * @return the sweep fingerprint
+     */
+    public long fingerprint() {
+        StringBuilder description = new StringBuilder();
+        for (Estimator estimator : estimators) {
+            description.append(estimator).append(';');
+        }
+        description.append(initialTagCount).append(';').append(maxTagCount).append(';').append(tagCountIncrement)
+                .append(';').append(simulationsPerCount).append(';').append(occupancy).append(';').append(lockstep)
+                .append(';').append(cacheCapacity).append(';').append(Counter.values().length);
+        if (isAdaptive()) {
+            description.append(';').append(targetPrecision).append(';').append(confidence).append(';')
+                    .append(maxSimulationsPerCount).append(';').append(precisionCounter.fieldName);
+        }
+        long fingerprint = 0;
+        for (int i = 0; i < description.length(); i++) {
+            fingerprint = RandomStream.seed(fingerprint, description.charAt(i));
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Returns the tag count with the received index.
+     *
+     * @param index the tag count index, between 0 and {@link #tagCounts()} (exclusive)
+     * @return the tag count
+     */
+    public int tagCount(int index) {
+        return initialTagCount + index * tagCountIncrement;
+    }
+
+    /**
+     * Creates a sweep spec from the command line arguments, see {@link SweepRunner} for the accepted arguments.
+     *
+     * @param args the command line arguments
+     * @return the sweep spec
+     * @throws IllegalArgumentException if some argument is invalid
+     */
+    public static SweepSpec parse(String[] args) {
+        SweepSpec spec = new SweepSpec();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "-e":
+                case "-estimator":
+                    spec.estimators.add(parseEstimator(value(args, ++i, arg)));
+                    break;
+                case "-from":
+                    spec.initialTagCount = parseInt(value(args, ++i, arg), arg, 0);
+                    break;
+                case "-to":
+                    spec.maxTagCount = parseInt(value(args, ++i, arg), arg, 0);
+                    break;
+                case "-step":
+                    spec.tagCountIncrement = parseInt(value(args, ++i, arg), arg, 1);
+                    break;
+                case "-runs":
+                    spec.simulationsPerCount = parseInt(value(args, ++i, arg), arg, 1);
+                    break;
+                case "-precision":
+                    spec.targetPrecision = parseDouble(value(args, ++i, arg), arg, 0, Double.MAX_VALUE);
+                    break;
+                case "-confidence":
+                    spec.confidence = parseDouble(value(args, ++i, arg), arg, Double.MIN_VALUE, Math.nextDown(1d));
+                    break;
+                case "-maxruns":
+                    spec.maxSimulationsPerCount = parseInt(value(args, ++i, arg), arg, 1);
+                    break;
+                case "-metric":
+                    spec.precisionCounter = parseCounter(value(args, ++i, arg));
+                    break;
+                case "-seed":
+                    try {
+                        spec.seed = Long.parseLong(value(args, ++i, arg));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid value of " + arg + ": " + args[i], e);
+                    }
+                    break;
+                case "-replay":
+                    String[] replay = value(args, ++i, arg).split(":");
+                    if (replay.length != 2) {
+                        throw new IllegalArgumentException("The value of " + arg + " must be TAGCOUNT:RUN");
+                    }
+                    spec.replayTagCount = parseInt(replay[0], arg, 0);
+                    spec.replayRun = parseInt(replay[1], arg, 0);
+                    break;
+                case "-threads":
+                    spec.threads = parseInt(value(args, ++i, arg), arg, 1);
+                    break;
+                case "-occupancy":
+                    spec.occupancy = true;
+                    break;
+                case "-lockstep":
+                    spec.lockstep = true;
+                    break;
+                case "-table":
+                    if (spec.estimators.isEmpty()) {
+                        throw new IllegalArgumentException("The " + arg + " argument must follow its estimator");
+                    }
+                    int last = spec.estimators.size() - 1;
+                    String table = value(args, ++i, arg);
+                    try {
+                        spec.estimators.set(last, new TableEstimator(spec.estimators.get(last), Paths.get(table)));
+                    } catch (IOException e) {
+                        throw new IllegalArgumentException("Cannot read the table " + table + ": " + e.getMessage(), e);
+                    }
+                    break;
+                case "-cache":
+                    spec.cacheCapacity = parseInt(value(args, ++i, arg), arg, 1);
+                    break;
+                case "-trace":
+                    spec.trace = value(args, ++i, arg);
+                    break;
+                case "-journal":
+                    spec.journal = value(args, ++i, arg);
+                    break;
+                case "-format":
+                    spec.format = value(args, ++i, arg);
+                    if (!spec.format.equals("csv") && !spec.format.equals("json")) {
+                        throw new IllegalArgumentException("Unknown format: " + spec.format);
+                    }
+                    break;
+                case "-out":
+                    spec.output = value(args, ++i, arg);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+        if (spec.estimators.isEmpty()) {
+            throw new IllegalArgumentException("At least one estimator is required");
+        }
+        if (spec.isAdaptive() && spec.maxSimulationsPerCount < spec.simulationsPerCount) {
+            throw new IllegalArgumentException("The value of -maxruns must be at least the value of -runs");
+        }
+        if (spec.cacheCapacity > 0) {
+            spec.estimators.replaceAll(estimator -> estimator.getType() == Estimator.Type.SIMPLE_DFSA && estimator.isPure()
+                    ? new CachedEstimator(estimator, spec.cacheCapacity)
+                    : estimator);
+        }
+        return spec;
+    }
+
+    /**
+     * Creates an estimator from its name and constructor parameters separated by ':', like "Chen:64" or
+     * "QAlgorithm:6:0.1".
+     *
+     * @param description the estimator description
+     * @return the estimator
+     * @throws IllegalArgumentException if the estimator is unknown or the parameters are invalid
+     */
+    public static Estimator parseEstimator(String description) {
+        String[] parts = description.split(":");
+        try {
+            switch (parts[0]) {
+                case "LowerBound":
+                    return new LowerBound(parts.length > 1 ? Integer.parseInt(parts[1]) : 64);
+                case "Schoute":
+                    return new Schoute(parts.length > 1 ? Integer.parseInt(parts[1]) : 64);
+                case "EomLee":
+                    return new EomLee(parts.length > 1 ? Integer.parseInt(parts[1]) : 64, parts.length > 2 ? Float.parseFloat(parts[2]) : 1e-3f);
+                case "Chen":
+                    return new Chen(parts.length > 1 ? Integer.parseInt(parts[1]) : 64);
+                case "Vahedi":
+                    return new Vahedi(parts.length > 1 ? Integer.parseInt(parts[1]) : 64);
+                case "QAlgorithm":
+                    return new QAlgorithm(parts.length > 1 ? Float.parseFloat(parts[1]) : 6, parts.length > 2 ? Float.parseFloat(parts[2]) : 0.1f);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid estimator parameters: " + description, e);
+        }
+        throw new IllegalArgumentException("Unknown estimator: " + parts[0]);
+    }
+
+    /**
+     * Returns the counter with the received name, the same of the {@link simulator.SimulationResult} field.
+     *
+     * @param name the counter name
+     * @return the counter
+     * @throws IllegalArgumentException if the counter is unknown
+     */
+    public static Counter parseCounter(String name) {
+        for (Counter counter : Counter.values()) {
+            if (counter.fieldName.equals(name)) {
+                return counter;
+            }
+        }
+        throw new IllegalArgumentException("Unknown metric: " + name);
+    }
+
+    /**
+     * Returns the argument value, also used by the other command line tools of the package.
+     *
+     * @param args     the command line arguments
+     * @param index    the value index
+     * @param argument the argument name
+     * @return the value
+     * @throws IllegalArgumentException if the value is missing
+     */
+    static String value(String[] args, int index, String argument) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value of " + argument);
+        }
+        return args[index];
+    }
+
+    /**
+     * Parses an int argument value, see {@link #parseInt(String, String, int, int)}.
+     *
+     * @param value    the value
+     * @param argument the argument name
+     * @param min      the min value accepted
+     * @return the parsed value
+     * @throws IllegalArgumentException if the value is not a number or is lesser than min
+     */
+    static int parseInt(String value, String argument, int min) {
+        return parseInt(value, argument, min, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Parses an int argument value, also used by the other command line tools of the package.
+     *
+     * @param value    the value
+     * @param argument the argument name
+     * @param min      the min value accepted
+     * @param max      the max value accepted
+     * @return the parsed value
+     * @throws IllegalArgumentException if the value is not a number or is out of the range
+     */
+    static int parseInt(String value, String argument, int min, int max) {
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of " + argument + ": " + value, e);
+        }
+        if (parsed < min || parsed > max) {
+            throw new IllegalArgumentException(max == Integer.MAX_VALUE
+                    ? "The value of " + argument + " must be at least " + min
+                    : "The value of " + argument + " must be between " + min + " and " + max);
+        }
+        return parsed;
+    }
+
+    /**
+     * Parses a double argument value.
+     *
+     * @param value    the value
+     * @param argument the argument name
+     * @param min      the min value accepted
+     * @param max      the max value accepted
+     * @return the parsed value
+     * @throws IllegalArgumentException if the value is not a number or is out of the range
+     */
+    private static double parseDouble(String value, String argument, double min, double max) {
+        double parsed;
+        try {
+            parsed = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of " + argument + ": " + value, e);
+        }
+        if (!(parsed >= min && parsed <= max)) {
+            throw new IllegalArgumentException("The value of " + argument + " must be between " + min + " and " + max);
+        }
+        return parsed;
+    }
+}
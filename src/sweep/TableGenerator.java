@@ -0,0 +1,125 @@
+package sweep;
+
+import estimator.Estimator;
+import estimator.TableEstimator;
+import simulator.SimulationResult;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputes the frame sizes of a pure simple estimator for every (idle, success, collision) triple whose sum is lesser
+ * or equal to the max frame size and writes them in a table file, see {@link TableEstimator}.
+ * <p>
+ * Arguments:
+ * <pre>
+ * -e, -estimator NAME[:PARAM...]  estimator of the table (e.g. Chen:64, Vahedi:64)
+ * -max L                          max frame size of the table (default 256, max 1024)
+ * -threads N                      number of threads (default available processors)
+ * -out FILE                       table file
+ * </pre>
+ *
+ * @author Pedro Henrique
+ */
+public class TableGenerator {
+
+    /**
+     * Prevents instantiation.
+     */
+    private TableGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Estimator estimator = null;
+        int maxFrameSize = 256;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String output = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "-e":
+                    case "-estimator":
+                        estimator = SweepSpec.parseEstimator(SweepSpec.value(args, ++i, arg));
+                        break;
+                    case "-max":
+                        maxFrameSize = SweepSpec.parseInt(SweepSpec.value(args, ++i, arg), arg, 0, TableEstimator.MAX_TABLE_FRAME_SIZE);
+                        break;
+                    case "-threads":
+                        threads = SweepSpec.parseInt(SweepSpec.value(args, ++i, arg), arg, 1);
+                        break;
+                    case "-out":
+                        output = SweepSpec.value(args, ++i, arg);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown argument: " + arg);
+                }
+            }
+            if (estimator == null || output == null) {
+                throw new IllegalArgumentException("The estimator and output file are required");
+            }
+            if (estimator.getType() != Estimator.Type.SIMPLE_DFSA || !estimator.isPure()) {
+                throw new IllegalArgumentException("Only pure simple DFSA estimators can be tabled: " + estimator);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: TableGenerator -e NAME[:PARAM...] [-max L] [-threads N] -out FILE");
+            System.exit(1);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        int[] frameSizes = generate(estimator, maxFrameSize, threads);
+        TableEstimator.write(Paths.get(output), estimator, maxFrameSize, frameSizes);
+        System.err.printf("%s: %d frame sizes in %.1f s%n", estimator, frameSizes.length, (System.nanoTime() - startTime) / 1e9);
+    }
+
+    /**
+     * Calculates the frame sizes of all triples of the table, each layer (frame size) is calculated in parallel.
+     *
+     * @param estimator    the estimator
+     * @param maxFrameSize the max frame size of the table
+     * @param threads      the number of threads
+     * @return the frame sizes, in {@link TableEstimator#index(int, int, int)} order
+     * @throws InterruptedException     if interrupted while waiting the threads
+     * @throws IllegalArgumentException if the estimator is not a pure simple DFSA estimator
+     */
+    public static int[] generate(Estimator estimator, int maxFrameSize, int threads) throws InterruptedException {
+        if (estimator.getType() != Estimator.Type.SIMPLE_DFSA || !estimator.isPure()) {
+            throw new IllegalArgumentException("Only pure simple DFSA estimators can be tabled: " + estimator);
+        }
+        int[] frameSizes = new int[TableEstimator.size(maxFrameSize)];
+        ThreadLocal<Estimator> estimators = ThreadLocal.withInitial(() -> {
+            Estimator copy = estimator.copy();
+            copy.setSimulationResult(new SimulationResult());
+            return copy;
+        });
+        AtomicInteger completedLayers = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            // The larger layers are submitted first, they are the slowest
+            pool.submit(() -> IntStream.rangeClosed(0, maxFrameSize).parallel().map(layer -> maxFrameSize - layer).forEach(t -> {
+                Estimator layerEstimator = estimators.get();
+                for (int collision = 0; collision <= t; collision++) {
+                    for (int success = 0; success <= t - collision; success++) {
+                        int idle = t - collision - success;
+                        frameSizes[TableEstimator.index(idle, success, collision)] = layerEstimator.nextFrameSize(idle, success, collision);
+                    }
+                }
+                int completed = completedLayers.incrementAndGet();
+                if (completed % 64 == 0) {
+                    System.err.println(completed + " of " + (maxFrameSize + 1) + " frame sizes");
+                }
+            })).get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        return frameSizes;
+    }
+}
@@ -0,0 +1,146 @@
+package estimator;
+
+import simulator.SimulationResult;
+
+import java.util.SplittableRandom;
+
+/**
+ * Checks that the bracketed likelihood search of {@link Chen#nextFrameSize(int, int, int)} returns the same frame sizes
+ * of the original linear scan, that increments n from s + 2c until the likelihood stops increasing. All the triples
+ * whose sum is lesser or equal to {@link #MAX_EXHAUSTIVE_FRAME_SIZE} are checked, the all collision frames up to
+ * {@link #MAX_COLLISION_FRAME_SIZE} and random triples of larger frames.
+ * Exits with status 1 if some frame size differs.
+ * <p>
+ * Run with: {@code java -cp out:test-out estimator.ChenEquivalenceTest}
+ *
+ * @author Pedro Henrique
+ */
+public class ChenEquivalenceTest {
+
+    /**
+     * The max frame size of the exhaustively checked triples.
+     */
+    private static final int MAX_EXHAUSTIVE_FRAME_SIZE = 256;
+
+    /**
+     * The max frame size of the checked all collision frames.
+     */
+    private static final int MAX_COLLISION_FRAME_SIZE = 2048;
+
+    /**
+     * The number of random triples and their max frame size.
+     */
+    private static final int RANDOM_TRIPLES = 20_000, MAX_RANDOM_FRAME_SIZE = 20_000;
+
+    /**
+     * The max number of differences printed.
+     */
+    private static final int MAX_PRINTED_DIFFERENCES = 10;
+
+    /**
+     * The number of checked triples and of differences.
+     */
+    private static long checked, differences;
+
+    /**
+     * Prevents instantiation.
+     */
+    private ChenEquivalenceTest() {
+    }
+
+    public static void main(String[] args) {
+        Chen chen = new Chen(64);
+        chen.setSimulationResult(new SimulationResult());
+        SimulationResult scanResult = new SimulationResult();
+
+        for (int l = 1; l <= MAX_EXHAUSTIVE_FRAME_SIZE; l++) {
+            for (int collision = 1; collision <= l; collision++) {
+                for (int success = 0; success <= l - collision; success++) {
+                    check(chen, scanResult, l - collision - success, success, collision);
+                }
+            }
+        }
+        for (int l = MAX_EXHAUSTIVE_FRAME_SIZE + 1; l <= MAX_COLLISION_FRAME_SIZE; l++) {
+            check(chen, scanResult, 0, 0, l);
+        }
+        SplittableRandom random = new SplittableRandom(1);
+        for (int k = 0; k < RANDOM_TRIPLES; k++) {
+            int l = random.nextInt(MAX_EXHAUSTIVE_FRAME_SIZE + 1, MAX_RANDOM_FRAME_SIZE + 1);
+            int collision = random.nextInt(1, l + 1);
+            int success = random.nextInt(0, l - collision + 1);
+            check(chen, scanResult, l - collision - success, success, collision);
+        }
+
+        System.out.printf("%d triples, %d differences%n", checked, differences);
+        if (differences > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares the frame sizes of a triple.
+     *
+     * @param chen       the checked estimator
+     * @param scanResult the simulation result of the linear scan
+     * @param idle       number of idle slots
+     * @param success    number of success slots
+     * @param collision  number of collision slots
+     */
+    private static void check(Chen chen, SimulationResult scanResult, int idle, int success, int collision) {
+        checked++;
+        int frameSize = chen.nextFrameSize(idle, success, collision);
+        int expected = linearScan(idle, success, collision, scanResult);
+        if (frameSize != expected) {
+            if (differences++ < MAX_PRINTED_DIFFERENCES) {
+                System.out.printf("(%d, %d, %d): %d, linear scan %d%n", idle, success, collision, frameSize, expected);
+            }
+        }
+    }
+
+    /**
+     * The original Chen estimator, increments n until the likelihood stops increasing.
+     *
+     * @param idle             number of idle slots
+     * @param success          number of success slots
+     * @param collision        number of collision slots
+     * @param simulationResult the simulation result that counts the iterations
+     * @return the new frame size
+     */
+    private static int linearScan(int idle, int success, int collision, SimulationResult simulationResult) {
+        if (collision == 0) {
+            return 0;
+        }
+
+        double i = idle;
+        double s = success;
+        double c = collision;
+
+        double l = i + s + c;
+        double n = s + c * 2;
+
+        double previous;
+        double next = Double.NEGATIVE_INFINITY;
+
+        double not1_LpowN1 = Math.pow(1 - 1 / l, n - 1);
+        double not1_LpowN = not1_LpowN1 * (1 - 1 / l);
+        double logFatL_fatIfatSfatC = MathUtils.logFactAndDiv(l, i, s, c);
+
+        do {
+            simulationResult.iterations++;
+
+            double pI = not1_LpowN;
+            double pS = (n / l) * not1_LpowN1;
+            double pC = 1 - pI - pS;
+
+            not1_LpowN1 = not1_LpowN;
+            not1_LpowN *= (1 - 1 / l);
+
+            previous = next;
+            n++;
+
+            next = logFatL_fatIfatSfatC + MathUtils.logPow(pI, i) + MathUtils.logPow(pS, s) + MathUtils.logPow(pC, c);
+        } while (previous < next);
+        int nextFrameSize = (int) (n - 2d) - success;
+        return nextFrameSize > 0 ? nextFrameSize : 2;
+    }
+}
@@ -0,0 +1,101 @@
+package estimator;
+
+import simulator.FrameTrace;
+import simulator.SimulationResult;
+import simulator.Simulator;
+
+import java.util.Arrays;
+
+/**
+ * Checks that the warm start of the {@link EomLee} solver does not leak between simulations: a reused instance that
+ * simulates the same seed twice, with other simulations between them, creates the same frame sizes and counts the same
+ * iterations of a fresh instance. Exits with status 1 if some simulation differs.
+ * <p>
+ * Run with: {@code java -cp out:test-out estimator.EomLeeWarmStartTest}
+ *
+ * @author Pedro Henrique
+ */
+public class EomLeeWarmStartTest {
+
+    /**
+     * The tag counts of the simulations.
+     */
+    private static final int[] TAG_COUNTS = {10, 100, 1000, 5000};
+
+    /**
+     * The number of seeds simulated for each tag count.
+     */
+    private static final int SEEDS = 50;
+
+    /**
+     * Prevents instantiation.
+     */
+    private EomLeeWarmStartTest() {
+    }
+
+    public static void main(String[] args) {
+        EomLee reused = new EomLee(64, 1e-3f);
+        FrameRecorder recorder = new FrameRecorder();
+        int checked = 0;
+        int differences = 0;
+        for (int tagCount : TAG_COUNTS) {
+            for (int seed = 0; seed < SEEDS; seed++) {
+                SimulationResult expected = Simulator.simulate(new EomLee(64, 1e-3f), tagCount, seed, recorder);
+                int[] expectedFrames = recorder.frameSizes();
+
+                // The reused instance simulates the seed after a simulation of other tag count and seed
+                Simulator.simulate(reused, tagCount * 2 + 1, seed + SEEDS, recorder);
+                for (int repetition = 0; repetition < 2; repetition++) {
+                    SimulationResult result = Simulator.simulate(reused, tagCount, seed, recorder);
+                    checked++;
+                    if (!Arrays.equals(recorder.frameSizes(), expectedFrames) || result.iterations != expected.iterations) {
+                        differences++;
+                        System.out.printf("tags=%d seed=%d repetition=%d: %d frames and %d iterations, fresh instance %d and %d%n",
+                                tagCount, seed, repetition, result.createdFrames, result.iterations,
+                                expected.createdFrames, expected.iterations);
+                    }
+                }
+            }
+        }
+
+        System.out.printf("%d simulations, %d differences%n", checked, differences);
+        if (differences > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Records the frame sizes of the last simulation.
+     */
+    private static class FrameRecorder implements FrameTrace {
+
+        private int[] frameSizes = new int[64];
+        private int frames;
+
+        @Override
+        public void simulationStarted(Estimator estimator, int tagCount, long seed) {
+            frames = 0;
+        }
+
+        @Override
+        public void frame(int frameSize, int idle, int success, int collision) {
+            if (frames == frameSizes.length) {
+                frameSizes = Arrays.copyOf(frameSizes, frames * 2);
+            }
+            frameSizes[frames++] = frameSize;
+        }
+
+        @Override
+        public void simulationFinished(SimulationResult simulationResult) {
+        }
+
+        /**
+         * Returns the frame sizes of the last simulation.
+         *
+         * @return the frame sizes
+         */
+        int[] frameSizes() {
+            return Arrays.copyOf(frameSizes, frames);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package estimator;
+
+import simulator.SimulationResult;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checks the collision probability p3 of {@link Vahedi}, advanced by the occupancy recurrence, and its frame sizes
+ * against the inclusion-exclusion closed form it replaced, p3 = sum over k and v of (-1)^(k+v) * comb(c, k) *
+ * comb(c-k, v) * ((n-s)!/(n-s-k)!) * (c-k-v)^(n-s-k) / c^(n-s). The closed form is evaluated with exact integers, its
+ * alternating terms cancel in floating point. The frame sizes are compared with the original linear scan of the
+ * likelihood with the closed form p3, on all the triples with idle or success slots whose sum is lesser or equal to
+ * {@link #MAX_EXHAUSTIVE_FRAME_SIZE}, the frame sizes of two tied likelihoods are both accepted.
+ * Exits with status 1 if some probability or frame size differs.
+ * <p>
+ * Run with: {@code java -cp out:test-out estimator.VahediEquivalenceTest}
+ *
+ * @author Pedro Henrique
+ */
+public class VahediEquivalenceTest {
+
+    /**
+     * The max number of collision slots and of extra tags (above two per slot) of the checked probabilities.
+     */
+    private static final int MAX_COLLISION_SLOTS = 40, MAX_EXCESS = 60;
+
+    /**
+     * The max relative error of the checked probabilities.
+     */
+    private static final double MAX_RELATIVE_ERROR = 1e-10;
+
+    /**
+     * The max difference of two likelihood logs considered tied, the scans may stop at any of them.
+     */
+    private static final double MAX_TIE_DIFFERENCE = 1e-12;
+
+    /**
+     * The max frame size of the checked triples.
+     */
+    private static final int MAX_EXHAUSTIVE_FRAME_SIZE = 24;
+
+    /**
+     * The max number of differences printed.
+     */
+    private static final int MAX_PRINTED_DIFFERENCES = 10;
+
+    /**
+     * The value of log(2).
+     */
+    private static final double LN2 = Math.log(2);
+
+    /**
+     * The closed form p3 logs of the linear scan, keyed by the number of tags (high bits) and slots (low bits).
+     */
+    private static final Map<Long, Double> closedFormP3Cache = new HashMap<>();
+
+    /**
+     * The number of checked values, of frame sizes of tied likelihoods and of differences.
+     */
+    private static long checked, ties, differences;
+
+    /**
+     * Prevents instantiation.
+     */
+    private VahediEquivalenceTest() {
+    }
+
+    public static void main(String[] args) {
+        Vahedi vahedi = new Vahedi(64);
+        vahedi.setSimulationResult(new SimulationResult());
+
+        for (int c = 1; c <= MAX_COLLISION_SLOTS; c++) {
+            vahedi.startCollisionProbability(c, 2 * c);
+            for (int m = 2 * c; m <= 2 * c + MAX_EXCESS; m++) {
+                checked++;
+                double logP3 = vahedi.logCollisionProbability();
+                double expected = logClosedFormP3(m, c);
+                if (!(Math.abs(logP3 - expected) <= MAX_RELATIVE_ERROR)) {
+                    if (differences++ < MAX_PRINTED_DIFFERENCES) {
+                        System.out.printf("p3(m=%d, c=%d): log %.15g, closed form %.15g%n", m, c, logP3, expected);
+                    }
+                }
+                vahedi.advanceCollisionProbability();
+            }
+        }
+
+        for (int l = 1; l <= MAX_EXHAUSTIVE_FRAME_SIZE; l++) {
+            for (int collision = 1; collision <= l; collision++) {
+                for (int success = 0; success <= l - collision; success++) {
+                    int idle = l - collision - success;
+                    if (idle == 0 && success == 0) {
+                        continue; // The likelihood increases with n, the scans stop where the rounding stops them
+                    }
+                    checked++;
+                    int frameSize = vahedi.nextFrameSize(idle, success, collision);
+                    int expected = linearScan(idle, success, collision);
+                    if (Math.abs(frameSize - expected) == 1 && Math.abs(logLikelihood(idle, success, collision, frameSize + success)
+                            - logLikelihood(idle, success, collision, expected + success)) <= MAX_TIE_DIFFERENCE) {
+                        ties++;
+                    } else if (frameSize != expected) {
+                        if (differences++ < MAX_PRINTED_DIFFERENCES) {
+                            System.out.printf("(%d, %d, %d): %d, closed form %d%n", idle, success, collision, frameSize, expected);
+                        }
+                    }
+                }
+            }
+        }
+
+        System.out.printf("%d values, %d ties, %d differences%n", checked, ties, differences);
+        if (differences > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * The original Vahedi estimator, increments n until the likelihood stops increasing, with the closed form p3.
+     *
+     * @param idle      number of idle slots
+     * @param success   number of success slots
+     * @param collision number of collision slots
+     * @return the new frame size
+     */
+    private static int linearScan(int idle, int success, int collision) {
+        int n = success + collision * 2;
+
+        double previous;
+        double next = Double.NEGATIVE_INFINITY;
+        do {
+            previous = next;
+            next = logLikelihood(idle, success, collision, n);
+            n++;
+        } while (previous < next);
+        int nextFrameSize = n - 2 - success;
+        return nextFrameSize > 0 ? nextFrameSize : 2;
+    }
+
+    /**
+     * Returns the log of the likelihood of a frame with n tags, with the closed form p3.
+     *
+     * @param idle      number of idle slots
+     * @param success   number of success slots
+     * @param collision number of collision slots
+     * @param tags      the number of tags n
+     * @return the log of the likelihood
+     */
+    private static double logLikelihood(int idle, int success, int collision, int tags) {
+        double i = idle;
+        double s = success;
+        double c = collision;
+        double l = i + s + c;
+        double n = tags;
+
+        double logFatL_fatIfatSfatC = logFactorial(l) - logFactorial(i) - logFactorial(s) - logFactorial(c);
+        double logP1 = n * Math.log(1 - i / l);
+        double logP2 = logFactorial(n) - logFactorial(n - s) + (n - s) * Math.log(c) - n * Math.log(l - i);
+        double logP3 = closedFormP3Cache.computeIfAbsent((long) (n - s) << 32 | collision,
+                key -> logClosedFormP3((int) (key >>> 32), (int) (long) key));
+
+        // p1, p2 and p3 are already the probabilities of all idle, success and collision slots
+        return logFatL_fatIfatSfatC + logP1 + logP2 + logP3;
+    }
+
+    /**
+     * Returns the log of the inclusion-exclusion closed form of the probability of m tags leaving no one of c slots
+     * with less than two tags, evaluated with exact integers.
+     *
+     * @param m the number of tags
+     * @param c the number of slots
+     * @return the log of p3
+     */
+    private static double logClosedFormP3(int m, int c) {
+        BigInteger sum = BigInteger.ZERO;
+        for (int k = 0; k <= c; k++) {
+            BigInteger arrangement = BigInteger.ONE;
+            for (int t = 0; t < k; t++) {
+                arrangement = arrangement.multiply(BigInteger.valueOf(m - t));
+            }
+            BigInteger combCK = binomial(c, k);
+            for (int v = 0; v <= c - k; v++) {
+                BigInteger term = combCK.multiply(binomial(c - k, v)).multiply(arrangement)
+                        .multiply(BigInteger.valueOf(c - k - v).pow(m - k));
+                sum = (k + v) % 2 == 0 ? sum.add(term) : sum.subtract(term);
+            }
+        }
+        return log(sum) - log(BigInteger.valueOf(c).pow(m));
+    }
+
+    /**
+     * Returns the binomial coefficient comb(n, k).
+     *
+     * @param n the number of elements
+     * @param k the number of chosen elements
+     * @return comb(n, k)
+     */
+    private static BigInteger binomial(int n, int k) {
+        BigInteger binomial = BigInteger.ONE;
+        for (int t = 1; t <= k; t++) {
+            binomial = binomial.multiply(BigInteger.valueOf(n - k + t)).divide(BigInteger.valueOf(t));
+        }
+        return binomial;
+    }
+
+    /**
+     * Returns the log of a positive integer of any size.
+     *
+     * @param value the integer
+     * @return log(value)
+     */
+    private static double log(BigInteger value) {
+        int shift = Math.max(0, value.bitLength() - 62);
+        return Math.log(value.shiftRight(shift).doubleValue()) + shift * LN2;
+    }
+
+    /**
+     * Returns log(n!) by summing the logs.
+     *
+     * @param n the factorial argument
+     * @return log(n!)
+     */
+    private static double logFactorial(double n) {
+        double logFactorial = 0;
+        for (int k = 2; k <= n; k++) {
+            logFactorial += Math.log(k);
+        }
+        return logFactorial;
+    }
+}
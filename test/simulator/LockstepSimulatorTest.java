@@ -0,0 +1,103 @@
+package simulator;
+
+import estimator.Estimator;
+import sweep.SweepSpec;
+
+/**
+ * Checks that {@link LockstepSimulator} produces, for each replication, the same {@link SimulationResult} of
+ * {@link Simulator} with the same seed, the seeds are derived by {@link SweepSpec#runSeed(int, int, int)}. The
+ * simple and the complex DFSA estimators are checked, all the result counters but the times must be equal.
+ * Exits with status 1 if some replication differs.
+ * <p>
+ * Run with: {@code java -cp out:test-out simulator.LockstepSimulatorTest}
+ *
+ * @author Pedro Henrique
+ */
+public class LockstepSimulatorTest {
+
+    /**
+     * The checked estimators.
+     */
+    private static final String[] ESTIMATORS = {"LowerBound", "Schoute", "EomLee", "Chen", "Vahedi", "QAlgorithm"};
+
+    /**
+     * The tag counts of the simulations.
+     */
+    private static final int[] TAG_COUNTS = {1, 16, 100, 700};
+
+    /**
+     * The number of replications simulated together.
+     */
+    private static final int REPLICATIONS = 40;
+
+    /**
+     * The max number of differences printed.
+     */
+    private static final int MAX_PRINTED_DIFFERENCES = 10;
+
+    /**
+     * Prevents instantiation.
+     */
+    private LockstepSimulatorTest() {
+    }
+
+    public static void main(String[] args) {
+        SweepSpec spec = new SweepSpec();
+        spec.seed = 1;
+        for (String estimator : ESTIMATORS) {
+            spec.estimators.add(SweepSpec.parseEstimator(estimator));
+        }
+
+        int checked = 0;
+        int differences = 0;
+        for (int e = 0; e < spec.estimators.size(); e++) {
+            Estimator estimator = spec.estimators.get(e);
+            for (int tagCount : TAG_COUNTS) {
+                long[] seeds = new long[REPLICATIONS];
+                for (int run = 0; run < REPLICATIONS; run++) {
+                    seeds[run] = spec.runSeed(e, tagCount, run);
+                }
+                SimulationResult[] lockstepResults = LockstepSimulator.simulate(estimator.copy(), tagCount, seeds);
+                for (int run = 0; run < REPLICATIONS; run++) {
+                    checked++;
+                    SimulationResult expected = Simulator.simulate(estimator.copy(), tagCount, seeds[run]);
+                    if (!equals(lockstepResults[run], expected)) {
+                        if (differences++ < MAX_PRINTED_DIFFERENCES) {
+                            System.out.printf("%s tags=%d run=%d: %s, simulator %s%n", estimator, tagCount, run,
+                                    counters(lockstepResults[run]), counters(expected));
+                        }
+                    }
+                }
+            }
+        }
+
+        System.out.printf("%d replications, %d differences%n", checked, differences);
+        if (differences > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Returns true if the results have the same counters, the times are not compared.
+     *
+     * @param a a simulation result
+     * @param b other simulation result
+     * @return true if the counters are equal
+     */
+    private static boolean equals(SimulationResult a, SimulationResult b) {
+        return a.tagCount == b.tagCount && a.createdFrames == b.createdFrames && a.createdSlots == b.createdSlots
+                && a.idleSlots == b.idleSlots && a.successSlots == b.successSlots
+                && a.collisionSlots == b.collisionSlots && a.iterations == b.iterations;
+    }
+
+    /**
+     * Returns the counters of a result.
+     *
+     * @param result the simulation result
+     * @return the counters description
+     */
+    private static String counters(SimulationResult result) {
+        return String.format("frames=%d slots=%d idle=%d success=%d collision=%d iterations=%d", result.createdFrames,
+                result.createdSlots, result.idleSlots, result.successSlots, result.collisionSlots, result.iterations);
+    }
+}
@@ -0,0 +1,145 @@
+package simulator;
+
+import estimator.Estimator;
+
+/**
+ * Checks that the slot counts sampled by {@link OccupancySimulator} have the distribution of the counts of the per tag
+ * {@link Simulator}. Single frames of fixed tag counts and sizes, below and above the normal approximation threshold,
+ * are simulated by both simulators, and the means and variances of the idle, success and collision counts are
+ * compared, the differences must be within {@link #MAX_DEVIATIONS} standard errors. The sampled counts must also be
+ * consistent (the slots sum to the frame size and the remaining tags collide).
+ * Exits with status 1 if some check fails.
+ * <p>
+ * Run with: {@code java -cp out:test-out simulator.OccupancySimulatorTest}
+ *
+ * @author Pedro Henrique
+ */
+public class OccupancySimulatorTest {
+
+    /**
+     * The tag counts and frame sizes of the checked frames, the last ones use the normal approximation.
+     */
+    private static final int[][] FRAMES = {
+            {5, 8}, {50, 64}, {300, 200}, {1000, 1000}, {5000, 2000},
+            {20_000, 20_000}, {30_000, 20_000}, {20_000, 40_000}
+    };
+
+    /**
+     * The number of simulated frames of each size, in each simulator.
+     */
+    private static final int REPLICATIONS = 4000;
+
+    /**
+     * The max difference of the compared means and variances, in standard errors.
+     */
+    private static final double MAX_DEVIATIONS = 5;
+
+    /**
+     * Prevents instantiation.
+     */
+    private OccupancySimulatorTest() {
+    }
+
+    public static void main(String[] args) {
+        boolean failed = false;
+        for (int[] frame : FRAMES) {
+            int tags = frame[0];
+            int slots = frame[1];
+            SlotCounts exact = new SlotCounts();
+            SlotCounts sampled = new SlotCounts();
+            Estimator estimator = new SingleFrame(slots);
+            for (int replication = 0; replication < REPLICATIONS; replication++) {
+                Simulator.simulate(estimator, tags, replication, exact);
+                OccupancySimulator.simulate(estimator, tags, REPLICATIONS + replication, sampled);
+            }
+
+            String[] names = {"idle", "success", "collision"};
+            for (int k = 0; k < names.length; k++) {
+                Statistic a = exact.counts[k];
+                Statistic b = sampled.counts[k];
+                double meanError = Math.sqrt(a.variance() / a.count() + b.variance() / b.count());
+                double varianceError = Math.sqrt(2.0 / (REPLICATIONS - 1)) * Math.max(a.variance(), b.variance());
+                boolean passed = Math.abs(a.mean() - b.mean()) <= MAX_DEVIATIONS * meanError + 1e-9
+                        && Math.abs(a.variance() - b.variance()) <= MAX_DEVIATIONS * varianceError + 1e-9;
+                failed |= !passed;
+                System.out.printf("tags=%-6d slots=%-6d %-9s mean %10.2f %10.2f  variance %10.2f %10.2f %s%n",
+                        tags, slots, names[k], a.mean(), b.mean(), a.variance(), b.variance(), passed ? "OK" : "FAILED");
+            }
+            if (sampled.inconsistent > 0) {
+                failed = true;
+                System.out.printf("tags=%-6d slots=%-6d %d inconsistent frames FAILED%n", tags, slots, sampled.inconsistent);
+            }
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Simple DFSA estimator that creates a single frame of a fixed size.
+     */
+    private static class SingleFrame implements Estimator {
+
+        private final int frameSize;
+
+        private SingleFrame(int frameSize) {
+            this.frameSize = frameSize;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.SIMPLE_DFSA;
+        }
+
+        @Override
+        public int initialFrameSize() {
+            return frameSize;
+        }
+
+        @Override
+        public int nextFrameSize(int idle, int success, int collision) {
+            return 0;
+        }
+
+        @Override
+        public Estimator copy() {
+            return new SingleFrame(frameSize);
+        }
+
+        @Override
+        public String toString() {
+            return "SingleFrame " + frameSize;
+        }
+    }
+
+    /**
+     * Accumulates the idle, success and collision counts of the frames and counts the inconsistent frames.
+     */
+    private static class SlotCounts implements FrameTrace {
+
+        private final Statistic[] counts = {new Statistic(), new Statistic(), new Statistic()};
+        private int tagCount;
+        private int inconsistent;
+
+        @Override
+        public void simulationStarted(Estimator estimator, int tagCount, long seed) {
+            this.tagCount = tagCount;
+        }
+
+        @Override
+        public void frame(int frameSize, int idle, int success, int collision) {
+            counts[0].add(idle);
+            counts[1].add(success);
+            counts[2].add(collision);
+            int remaining = tagCount - success;
+            if (idle < 0 || success < 0 || collision < 0 || idle + success + collision != frameSize
+                    || remaining < 0 || (remaining == 0) != (collision == 0) || collision * 2 > remaining) {
+                inconsistent++;
+            }
+        }
+
+        @Override
+        public void simulationFinished(SimulationResult simulationResult) {
+        }
+    }
+}
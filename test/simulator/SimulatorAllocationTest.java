@@ -0,0 +1,75 @@
+package simulator;
+
+import estimator.*;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Checks with the thread allocation counter that, after the warm-up, {@link Simulator#simulate(Estimator, int, long)}
+ * with the simple DFSA estimators allocates only its returned {@link SimulationResult}, the frame buffers and the tag
+ * population are reused from the {@link FrameArena}. Exits with status 1 if some estimator allocates more.
+ * <p>
+ * Run with: {@code java -cp out simulator.SimulatorAllocationTest}
+ *
+ * @author Pedro Henrique
+ */
+public class SimulatorAllocationTest {
+
+    /**
+     * The max number of bytes allocated by a simulation, the size of a {@link SimulationResult} with some margin.
+     */
+    private static final long MAX_BYTES_PER_SIMULATION = 128;
+
+    /**
+     * The number of warm-up and measured simulations.
+     */
+    private static final int WARMUP_SIMULATIONS = 2000, MEASURED_SIMULATIONS = 500;
+
+    /**
+     * The tag counts of the simulations, the greatest is simulated first in the warm-up so the arena does not grow.
+     */
+    private static final int[] TAG_COUNTS = {1000, 10, 100, 500};
+
+    /**
+     * Prevents instantiation.
+     */
+    private SimulatorAllocationTest() {
+    }
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadAllocatedMemorySupported()) {
+            System.err.println("The JVM does not support the thread allocation counter");
+            System.exit(1);
+            return;
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        Estimator[] estimators = {new LowerBound(64), new Schoute(64), new EomLee(64, 1e-3f), new Chen(64), new Vahedi(64)};
+        boolean failed = false;
+        long sink = 0;
+        for (Estimator estimator : estimators) {
+            for (int run = 0; run < WARMUP_SIMULATIONS; run++) {
+                sink += Simulator.simulate(estimator, TAG_COUNTS[run % TAG_COUNTS.length], run).createdSlots;
+            }
+
+            // The counter itself is measured and subtracted
+            long counterBytes = threadBean.getThreadAllocatedBytes(threadId);
+            counterBytes = threadBean.getThreadAllocatedBytes(threadId) - counterBytes;
+            long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+            for (int run = 0; run < MEASURED_SIMULATIONS; run++) {
+                sink += Simulator.simulate(estimator, TAG_COUNTS[run % TAG_COUNTS.length], run).createdSlots;
+            }
+            long bytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes - counterBytes;
+            double bytesPerSimulation = (double) bytes / MEASURED_SIMULATIONS;
+            boolean passed = bytesPerSimulation <= MAX_BYTES_PER_SIMULATION;
+            failed |= !passed;
+            System.out.printf("%-24s %8.1f bytes/simulation %s%n", estimator, bytesPerSimulation, passed ? "OK" : "FAILED");
+        }
+        System.out.println("(" + sink + " slots)");
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package simulator;
+
+import estimator.Chen;
+import estimator.Estimator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Checks that merging {@link Statistic} chunks, in any order, gives the statistic of a single sequential pass over
+ * the same values (equal count, min, max and percentiles, and mean and variance within {@link #MAX_RELATIVE_ERROR}),
+ * and that the {@link Statistic} and {@link SimulationStatistics} state round trips through
+ * {@link Statistic#write(java.io.DataOutput)} and {@link Statistic#read(java.io.DataInput)} unchanged. A truncated
+ * state must not be read.
+ * Exits with status 1 if some check fails.
+ * <p>
+ * Run with: {@code java -cp out:test-out simulator.StatisticTest}
+ *
+ * @author Pedro Henrique
+ */
+public class StatisticTest {
+
+    /**
+     * The number of values and of chunks they are split in.
+     */
+    private static final int VALUES = 20_000, CHUNKS = 64;
+
+    /**
+     * The number of random merge orders checked.
+     */
+    private static final int ORDERS = 20;
+
+    /**
+     * The max relative error of the merged means and variances.
+     */
+    private static final double MAX_RELATIVE_ERROR = 1e-12;
+
+    /**
+     * The checked percentiles.
+     */
+    private static final double[] PERCENTILES = {0, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 1};
+
+    /**
+     * The number of failed checks.
+     */
+    private static int failures;
+
+    /**
+     * Prevents instantiation.
+     */
+    private StatisticTest() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        SplittableRandom random = new SplittableRandom(1);
+
+        // Zeros, small counters and log normal times, as the simulation counters
+        double[] values = new double[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            switch (i % 3) {
+                case 0:
+                    values[i] = random.nextInt(10) == 0 ? 0 : random.nextInt(1, 5000);
+                    break;
+                case 1:
+                    values[i] = Math.exp(random.nextDouble() * 12 - 6);
+                    break;
+                default:
+                    values[i] = 1e6 + random.nextDouble() * 1e3;
+                    break;
+            }
+        }
+        Statistic sequential = new Statistic();
+        for (double value : values) {
+            sequential.add(value);
+        }
+
+        // Chunk bounds of random sizes, some chunks are empty
+        int[] bounds = new int[CHUNKS + 1];
+        for (int k = 1; k < CHUNKS; k++) {
+            bounds[k] = random.nextInt(VALUES + 1);
+        }
+        bounds[CHUNKS] = VALUES;
+        Arrays.sort(bounds);
+        Statistic[] chunks = new Statistic[CHUNKS];
+        for (int k = 0; k < CHUNKS; k++) {
+            chunks[k] = new Statistic();
+            for (int i = bounds[k]; i < bounds[k + 1]; i++) {
+                chunks[k].add(values[i]);
+            }
+        }
+
+        int[] order = new int[CHUNKS];
+        for (int k = 0; k < CHUNKS; k++) {
+            order[k] = k;
+        }
+        for (int o = 0; o < ORDERS; o++) {
+            if (o > 0) {
+                for (int k = CHUNKS - 1; k > 0; k--) {
+                    int swap = random.nextInt(k + 1);
+                    int chunk = order[k];
+                    order[k] = order[swap];
+                    order[swap] = chunk;
+                }
+            }
+            Statistic merged = new Statistic();
+            for (int chunk : order) {
+                merged.merge(chunks[chunk]);
+            }
+            compare("merge order " + o, merged, sequential, MAX_RELATIVE_ERROR);
+        }
+
+        // Tree merge, the chunk pairs are merged first
+        Statistic[] level = chunks.clone();
+        for (int size = CHUNKS; size > 1; size /= 2) {
+            Statistic[] next = new Statistic[size / 2];
+            for (int k = 0; k < next.length; k++) {
+                next[k] = new Statistic();
+                next[k].merge(level[2 * k]);
+                next[k].merge(level[2 * k + 1]);
+            }
+            level = next;
+        }
+        compare("tree merge", level[0], sequential, MAX_RELATIVE_ERROR);
+
+        // Round trips
+        compare("round trip", roundTrip(sequential), sequential, 0);
+        compare("empty round trip", roundTrip(new Statistic()), new Statistic(), 0);
+        checkTruncated(sequential);
+        checkSimulationStatistics();
+
+        System.out.printf("%d failures%n", failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compares two statistics, the count, min, max and percentiles must be equal and the mean and variance within the
+     * received relative error.
+     *
+     * @param name          the check name
+     * @param statistic     the checked statistic
+     * @param expected      the expected statistic
+     * @param relativeError the max relative error of the mean and variance
+     */
+    private static void compare(String name, Statistic statistic, Statistic expected, double relativeError) {
+        boolean passed = statistic.count() == expected.count()
+                && statistic.min() == expected.min() && statistic.max() == expected.max()
+                && isClose(statistic.mean(), expected.mean(), relativeError)
+                && isClose(statistic.variance(), expected.variance(), relativeError);
+        for (double percentile : PERCENTILES) {
+            passed &= statistic.percentile(percentile) == expected.percentile(percentile);
+        }
+        if (!passed) {
+            failures++;
+            System.out.printf("%s: count %d mean %.17g variance %.17g median %.17g, expected %d %.17g %.17g %.17g%n",
+                    name, statistic.count(), statistic.mean(), statistic.variance(), statistic.percentile(0.5),
+                    expected.count(), expected.mean(), expected.variance(), expected.percentile(0.5));
+        }
+    }
+
+    /**
+     * Returns true if the value is within the relative error of the expected value.
+     *
+     * @param value         the value
+     * @param expected      the expected value
+     * @param relativeError the max relative error
+     * @return true if the value is close
+     */
+    private static boolean isClose(double value, double expected, double relativeError) {
+        return Math.abs(value - expected) <= relativeError * Math.abs(expected);
+    }
+
+    /**
+     * Writes and reads a statistic.
+     *
+     * @param statistic the statistic
+     * @return the read statistic
+     * @throws IOException if the statistic cannot be read
+     */
+    private static Statistic roundTrip(Statistic statistic) throws IOException {
+        return Statistic.read(new DataInputStream(new ByteArrayInputStream(toBytes(statistic))));
+    }
+
+    /**
+     * Returns the written state of a statistic.
+     *
+     * @param statistic the statistic
+     * @return the state bytes
+     * @throws IOException if the statistic cannot be written
+     */
+    private static byte[] toBytes(Statistic statistic) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        statistic.write(output);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Checks that each truncation of the statistic state fails to be read.
+     *
+     * @param statistic the statistic
+     * @throws IOException if the statistic cannot be written
+     */
+    private static void checkTruncated(Statistic statistic) throws IOException {
+        byte[] bytes = toBytes(statistic);
+        for (int length = 0; length < bytes.length; length++) {
+            try {
+                Statistic.read(new DataInputStream(new ByteArrayInputStream(bytes, 0, length)));
+                failures++;
+                System.out.printf("truncated to %d of %d bytes: read%n", length, bytes.length);
+            } catch (EOFException e) {
+                // Expected
+            }
+        }
+    }
+
+    /**
+     * Checks the round trip of the statistics of real simulations.
+     *
+     * @throws IOException if the statistics cannot be read
+     */
+    private static void checkSimulationStatistics() throws IOException {
+        Estimator estimator = new Chen(64);
+        SimulationStatistics statistics = new SimulationStatistics();
+        for (int run = 0; run < 200; run++) {
+            statistics.add(Simulator.simulate(estimator, 100, run));
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        statistics.write(output);
+        output.flush();
+        SimulationStatistics read = SimulationStatistics.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), estimator);
+        if (read.tagCount != statistics.tagCount || read.count() != statistics.count() || read.estimator != estimator) {
+            failures++;
+            System.out.printf("simulation statistics round trip: %d tags %d simulations, expected %d and %d%n",
+                    read.tagCount, read.count(), statistics.tagCount, statistics.count());
+        }
+        for (SimulationStatistics.Counter counter : SimulationStatistics.Counter.values()) {
+            compare("simulation statistics " + counter, read.get(counter), statistics.get(counter), 0);
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package simulator;
+
+import estimator.Estimator;
+import estimator.Schoute;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Checks that the simulations written by {@link TraceWriter} are read back unchanged by {@link TraceReader}, with
+ * negative frame size deltas, the largest frame sizes, tag counts and seeds, simulations without frames, records larger
+ * than the file buffers and real simulations. Then the file is truncated at many lengths, the complete records before
+ * the truncation must be read unchanged and the truncated record must be rejected, except when the truncation is at a
+ * record boundary, where the trace just ends.
+ * Exits with status 1 if some check fails.
+ * <p>
+ * Run with: {@code java -cp out:test-out simulator.TraceTest}
+ *
+ * @author Pedro Henrique
+ */
+public class TraceTest {
+
+    /**
+     * The number of random truncation lengths, in addition to every length of the first records.
+     */
+    private static final int RANDOM_TRUNCATIONS = 200;
+
+    /**
+     * The max number of failures printed.
+     */
+    private static final int MAX_PRINTED_FAILURES = 10;
+
+    /**
+     * The number of failed checks.
+     */
+    private static int failures;
+
+    /**
+     * Prevents instantiation.
+     */
+    private TraceTest() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Simulation> simulations = new ArrayList<>();
+        simulations.add(new Simulation("Schoute i=64", 100, 7, new int[][]{
+                {64, 10, 30, 24}, {120, 50, 40, 30}, {30, 10, 10, 10}, {5, 1, 2, 2}, {2, 0, 2, 0}}));
+        simulations.add(new Simulation("Estimador \u00e7\u00e3o \u03b1", Integer.MAX_VALUE, Long.MIN_VALUE, new int[][]{
+                {Integer.MAX_VALUE, Integer.MAX_VALUE - 2, 1, 1}, {1, 0, 0, 1}, {Integer.MAX_VALUE, 0, 0, Integer.MAX_VALUE}, {0, 0, 0, 0}}));
+        simulations.add(new Simulation("", 0, -1, new int[0][]));
+        simulations.add(new Simulation("Empty", 1, Long.MAX_VALUE, new int[0][]));
+
+        // A record larger than the file buffers
+        SplittableRandom random = new SplittableRandom(1);
+        int[][] frames = new int[30_000][];
+        for (int f = 0; f < frames.length; f++) {
+            int frameSize = random.nextInt(1, 1 << 20);
+            int idle = random.nextInt(frameSize + 1);
+            int success = random.nextInt(frameSize - idle + 1);
+            frames[f] = new int[]{frameSize, idle, success, frameSize - idle - success};
+        }
+        simulations.add(new Simulation("Large", 1 << 20, random.nextLong(), frames));
+
+        Path file = Files.createTempFile("trace", ".dfst");
+        Path truncated = Files.createTempFile("trace", ".dfst");
+        try {
+            // Synthetic simulations written through the recorder, and real ones through the simulator
+            try (TraceWriter writer = new TraceWriter(file)) {
+                for (Simulation simulation : simulations) {
+                    simulation.write(writer.recorder());
+                }
+                Estimator estimator = new Schoute(64);
+                for (int run = 0; run < 20; run++) {
+                    Simulation simulation = new Simulation(estimator.toString(), 50 + run * 37, run - 10, null);
+                    Simulator.simulate(estimator, simulation.tagCount, simulation.seed, new Recorder(simulation, writer.recorder()));
+                    simulations.add(simulation);
+                }
+            }
+
+            // Record end offsets, the header has 8 bytes
+            long[] ends = new long[simulations.size()];
+            long offset = 8;
+            for (int k = 0; k < ends.length; k++) {
+                int length = simulations.get(k).encodedLength();
+                offset += varintSize(length) + length;
+                ends[k] = offset;
+            }
+            byte[] bytes = Files.readAllBytes(file);
+            if (bytes.length != offset) {
+                fail("file has %d bytes, expected %d", bytes.length, offset);
+            }
+
+            check(file, bytes.length, simulations, ends);
+            for (int length = 0; length <= ends[2] + 1; length++) {
+                Files.write(truncated, Arrays.copyOf(bytes, length));
+                check(truncated, length, simulations, ends);
+            }
+            for (int k = 0; k < RANDOM_TRUNCATIONS; k++) {
+                int length = random.nextInt(bytes.length);
+                Files.write(truncated, Arrays.copyOf(bytes, length));
+                check(truncated, length, simulations, ends);
+            }
+            for (long end : ends) {
+                Files.write(truncated, Arrays.copyOf(bytes, (int) end - 1));
+                check(truncated, end - 1, simulations, ends);
+            }
+        } finally {
+            Files.delete(file);
+            Files.delete(truncated);
+        }
+
+        System.out.printf("%d simulations, %d failures%n", simulations.size(), failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Reads a trace file with the received length and checks its simulations.
+     *
+     * @param file        the trace file
+     * @param length      the file length
+     * @param simulations the written simulations
+     * @param ends        the end offset of each simulation record
+     * @throws IOException if the file cannot be read
+     */
+    private static void check(Path file, long length, List<Simulation> simulations, long[] ends) throws IOException {
+        int complete = 0;
+        while (complete < ends.length && ends[complete] <= length) {
+            complete++;
+        }
+        boolean atBoundary = length == 8 || complete > 0 && ends[complete - 1] == length;
+
+        TraceReader reader;
+        try {
+            reader = new TraceReader(file);
+        } catch (IllegalArgumentException e) {
+            if (length >= 8) {
+                fail("length %d: header rejected: %s", length, e.getMessage());
+            }
+            return;
+        }
+        try {
+            if (length < 8) {
+                fail("length %d: truncated header accepted", length);
+                return;
+            }
+            int read = 0;
+            try {
+                while (reader.next()) {
+                    if (read == complete) {
+                        fail("length %d: truncated record %d accepted", length, read);
+                        return;
+                    }
+                    if (!simulations.get(read).matches(reader)) {
+                        fail("length %d: record %d differs", length, read);
+                    }
+                    read++;
+                }
+                if (read != complete || !atBoundary) {
+                    fail("length %d: trace ended after %d records, %d complete", length, read, complete);
+                }
+            } catch (IllegalArgumentException e) {
+                if (read != complete || atBoundary) {
+                    fail("length %d: record %d rejected, %d complete: %s", length, read, complete, e.getMessage());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Counts and prints a failure.
+     *
+     * @param format    the message format
+     * @param arguments the message arguments
+     */
+    private static void fail(String format, Object... arguments) {
+        if (failures++ < MAX_PRINTED_FAILURES) {
+            System.out.printf(format + "%n", arguments);
+        }
+    }
+
+    /**
+     * Returns the number of bytes of an unsigned varint.
+     *
+     * @param value the value
+     * @return the varint size
+     */
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * A written simulation.
+     */
+    private static class Simulation {
+
+        private final String estimator;
+        private final int tagCount;
+        private final long seed;
+        private final List<int[]> frames = new ArrayList<>();
+
+        private Simulation(String estimator, int tagCount, long seed, int[][] frames) {
+            this.estimator = estimator;
+            this.tagCount = tagCount;
+            this.seed = seed;
+            if (frames != null) {
+                this.frames.addAll(Arrays.asList(frames));
+            }
+        }
+
+        /**
+         * Sends the simulation to a trace.
+         *
+         * @param trace the trace
+         */
+        private void write(FrameTrace trace) {
+            trace.simulationStarted(new Named(estimator), tagCount, seed);
+            for (int[] frame : frames) {
+                trace.frame(frame[0], frame[1], frame[2], frame[3]);
+            }
+            trace.simulationFinished(new SimulationResult());
+        }
+
+        /**
+         * Returns the length of the encoded record, without its length prefix.
+         *
+         * @return the record length
+         */
+        private int encodedLength() {
+            int description = estimator.getBytes(StandardCharsets.UTF_8).length;
+            int length = varintSize(description) + description + varintSize(tagCount) + varintSize(TraceWriter.zigzag(seed));
+            int previousFrameSize = 0;
+            for (int[] frame : frames) {
+                length += varintSize(TraceWriter.zigzag(frame[0] - previousFrameSize) & 0xFFFFFFFFL);
+                length += varintSize(frame[1]) + varintSize(frame[2]) + varintSize(frame[3]);
+                previousFrameSize = frame[0];
+            }
+            return length;
+        }
+
+        /**
+         * Returns true if the current simulation of the reader is this simulation.
+         *
+         * @param reader the reader
+         * @return true if the simulations are equal
+         */
+        private boolean matches(TraceReader reader) {
+            if (!estimator.equals(reader.estimator) || tagCount != reader.tagCount || seed != reader.seed
+                    || frames.size() != reader.frames) {
+                return false;
+            }
+            for (int f = 0; f < reader.frames; f++) {
+                int[] frame = frames.get(f);
+                if (frame[0] != reader.frameSizes[f] || frame[1] != reader.idle[f] || frame[2] != reader.success[f]
+                        || frame[3] != reader.collision[f]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Records the frames of a real simulation and sends them to the writer trace.
+     */
+    private static class Recorder implements FrameTrace {
+
+        private final Simulation simulation;
+        private final FrameTrace trace;
+
+        private Recorder(Simulation simulation, FrameTrace trace) {
+            this.simulation = simulation;
+            this.trace = trace;
+        }
+
+        @Override
+        public void simulationStarted(Estimator estimator, int tagCount, long seed) {
+            trace.simulationStarted(estimator, tagCount, seed);
+        }
+
+        @Override
+        public void frame(int frameSize, int idle, int success, int collision) {
+            simulation.frames.add(new int[]{frameSize, idle, success, collision});
+            trace.frame(frameSize, idle, success, collision);
+        }
+
+        @Override
+        public void simulationFinished(SimulationResult simulationResult) {
+            trace.simulationFinished(simulationResult);
+        }
+    }
+
+    /**
+     * Estimator that only has a description, the trace records the estimator description.
+     */
+    private static class Named implements Estimator {
+
+        private final String description;
+
+        private Named(String description) {
+            this.description = description;
+        }
+
+        @Override
+        public Type getType() {
+            return Type.SIMPLE_DFSA;
+        }
+
+        @Override
+        public int initialFrameSize() {
+            return 0;
+        }
+
+        @Override
+        public int nextFrameSize(int idle, int success, int collision) {
+            return 0;
+        }
+
+        @Override
+        public Estimator copy() {
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package sweep;
+
+import simulator.SimulationStatistics.Counter;
+import simulator.Statistic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks that an interrupted sweep is resumed from its {@link SweepJournal}. A complete sweep is journaled, then the
+ * journal tail is damaged (truncated inside the last record, a flipped byte in the last record, garbage appended) and
+ * the sweep is resumed from the damaged journal, with other seed. Only the intact records must be restored, with the
+ * journal seed, and the resumed sweep must finish with the points of the complete sweep (all counters but the times,
+ * that are only kept by the restored points), and with a complete journal. A journal of other sweep must restore no
+ * point.
+ * Exits with status 1 if some check fails.
+ * <p>
+ * Run with: {@code java -cp out:test-out sweep.SweepJournalTest}
+ *
+ * @author Pedro Henrique
+ */
+public class SweepJournalTest {
+
+    /**
+     * The arguments of the journaled sweep, without the seed.
+     */
+    private static final String[] SWEEP = {"-e", "Schoute", "-e", "Chen", "-from", "10", "-to", "130", "-step", "40", "-runs", "40", "-threads", "2"};
+
+    /**
+     * The seed of the journaled sweep.
+     */
+    private static final long SEED = 5;
+
+    /**
+     * The counters compared in the resumed points, the times change in each execution.
+     */
+    private static final Counter[] COUNTERS = {Counter.CREATED_FRAMES, Counter.CREATED_SLOTS, Counter.IDLE_SLOTS,
+            Counter.SUCCESS_SLOTS, Counter.COLLISION_SLOTS, Counter.ITERATIONS};
+
+    /**
+     * The number of failed checks.
+     */
+    private static int failures;
+
+    /**
+     * Prevents instantiation.
+     */
+    private SweepJournalTest() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("sweep", ".dfsj");
+        Path damaged = Files.createTempFile("sweep", ".dfsj");
+        try {
+            Files.delete(file);
+            SweepSpec spec = spec(SEED);
+            SweepPoint[] expected;
+            try (SweepJournal journal = new SweepJournal(file, spec)) {
+                expected = new SweepExecutor(spec, null, journal).execute(null);
+            }
+            byte[] bytes = Files.readAllBytes(file);
+            List<int[]> records = records(bytes);
+            check(records.size() == expected.length, "journal has %d records, expected %d", records.size(), expected.length);
+
+            // The complete journal restores all the points
+            resume("complete", bytes, damaged, expected, records.size());
+
+            // Truncated at each byte of the last record
+            int[] last = records.get(records.size() - 1);
+            for (int length = last[0]; length < bytes.length; length++) {
+                resume("truncated to " + length, Arrays.copyOf(bytes, length), damaged, expected, records.size() - 1);
+            }
+
+            // A flipped byte in the last record, its length, payload and CRC32
+            for (int offset = last[0]; offset < bytes.length; offset += 7) {
+                byte[] flipped = bytes.clone();
+                flipped[offset] ^= 0x10;
+                resume("flipped byte " + offset, flipped, damaged, expected, records.size() - 1);
+            }
+
+            // Garbage after the last record
+            byte[] garbage = Arrays.copyOf(bytes, bytes.length + 100);
+            for (int i = bytes.length; i < garbage.length; i++) {
+                garbage[i] = (byte) (i * 31);
+            }
+            resume("garbage", garbage, damaged, expected, records.size());
+
+            // Other sweep (more runs) restores nothing
+            SweepSpec other = spec(SEED);
+            other.simulationsPerCount++;
+            Files.write(damaged, bytes);
+            try (SweepJournal journal = new SweepJournal(damaged, other)) {
+                check(journal.getRestoredPoints() == 0, "other sweep: %d points restored", journal.getRestoredPoints());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(damaged);
+        }
+
+        System.out.printf("%d failures%n", failures);
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Resumes the sweep from a damaged journal and checks the restored points and the resumed sweep.
+     *
+     * @param name     the check name
+     * @param bytes    the damaged journal
+     * @param file     the file of the damaged journal
+     * @param expected the points of the complete sweep
+     * @param intact   the number of intact records of the damaged journal
+     * @throws IOException if the journal cannot be written or read
+     */
+    private static void resume(String name, byte[] bytes, Path file, SweepPoint[] expected, int intact) throws IOException {
+        List<int[]> records = records(bytes);
+        Files.write(file, bytes);
+
+        SweepSpec spec = spec(SEED + 1);
+        SweepPoint[] points;
+        try (SweepJournal journal = new SweepJournal(file, spec)) {
+            check(journal.getRestoredPoints() == intact, "%s: %d points restored, expected %d", name, journal.getRestoredPoints(), intact);
+            check(spec.seed == SEED, "%s: seed %d, expected the journal seed %d", name, spec.seed, SEED);
+            boolean[] restored = new boolean[expected.length];
+            for (int k = 0; k < intact; k++) {
+                restored[records.get(k)[1]] = true;
+            }
+            for (int i = 0; i < expected.length; i++) {
+                SweepPoint point = journal.getPoint(i);
+                check((point != null) == restored[i], "%s: point %d restored %b", name, i, point != null);
+                check(point == null || equals(point, expected[i], true), "%s: restored point %d differs", name, i);
+            }
+            points = new SweepExecutor(spec, null, journal).execute(null);
+        }
+        for (int i = 0; i < expected.length; i++) {
+            check(equals(points[i], expected[i], false), "%s: resumed point %d differs", name, i);
+        }
+
+        // The resumed journal is complete
+        try (SweepJournal journal = new SweepJournal(file, spec(SEED + 2))) {
+            check(journal.getRestoredPoints() == expected.length, "%s: resumed journal has %d points", name, journal.getRestoredPoints());
+        }
+    }
+
+    /**
+     * Returns the spec of the journaled sweep with the received seed.
+     *
+     * @param seed the sweep seed
+     * @return the sweep spec
+     */
+    private static SweepSpec spec(long seed) {
+        String[] args = Arrays.copyOf(SWEEP, SWEEP.length + 2);
+        args[SWEEP.length] = "-seed";
+        args[SWEEP.length + 1] = Long.toString(seed);
+        return SweepSpec.parse(args);
+    }
+
+    /**
+     * Returns the offset and point index of the complete records of a journal, see {@link SweepJournal}, the CRC32 is
+     * not checked.
+     *
+     * @param bytes the journal bytes
+     * @return the offset and point index of each record
+     */
+    private static List<int[]> records(byte[] bytes) {
+        List<int[]> records = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int offset = 8;
+        while (bytes.length - offset >= 4) {
+            int length = buffer.getInt(offset);
+            if (length < 20 || bytes.length - offset - 8 < length) {
+                break;
+            }
+            records.add(new int[]{offset, buffer.getInt(offset + 4 + 16)});
+            offset += length + 8;
+        }
+        return records;
+    }
+
+    /**
+     * Returns true if the points have the same counters statistics.
+     *
+     * @param point    a point
+     * @param expected the expected point
+     * @param times    true if the time counters are compared too
+     * @return true if the points are equal
+     */
+    private static boolean equals(SweepPoint point, SweepPoint expected, boolean times) {
+        if (point == null || !point.estimator.toString().equals(expected.estimator.toString())
+                || point.tagCount != expected.tagCount || point.simulations != expected.simulations) {
+            return false;
+        }
+        for (Counter counter : times ? Counter.values() : COUNTERS) {
+            Statistic a = point.statistics.get(counter);
+            Statistic b = expected.statistics.get(counter);
+            if (a.count() != b.count() || a.mean() != b.mean() || a.variance() != b.variance() || a.min() != b.min()
+                    || a.max() != b.max() || a.percentile(0.5) != b.percentile(0.5) || a.percentile(0.99) != b.percentile(0.99)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Counts and prints a failure if the condition is false.
+     *
+     * @param condition the checked condition
+     * @param format    the failure message format
+     * @param arguments the failure message arguments
+     */
+    private static void check(boolean condition, String format, Object... arguments) {
+        if (!condition) {
+            failures++;
+            System.out.printf(format + "%n", arguments);
+        }
+    }
+}